@@ -0,0 +1,93 @@
+import java.util.Random;
+
+import benchmarks.HotPaths;
+
+/**
+ * HotPaths on boards reached by random walks from the standard goal, each
+ * with one of its children.
+ */
+public class SolverHotPaths implements HotPaths {
+
+    private static final State.Operator[] OPERATORS = State.Operator.values();
+
+    private final State goal;
+    private final State[] boards = new State[BOARDS];
+    private final State[] children = new State[BOARDS];
+    private final short[] linearConflictH = new short[BOARDS];
+    private final Heuristic linearConflict = new LinearConflict();
+    private final FrontierIndex index;
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the boards
+     */
+    public SolverHotPaths(int boardSize) {
+        this.goal = State.standardGoal(boardSize);
+        Random random = new Random(1);
+        State s = goal;
+        for (int i = 0; i < BOARDS; i++) {
+            for (int k = 0; k < 50; k++) {
+                State next = s.move(OPERATORS[random.nextInt(OPERATORS.length)]);
+                if (next != null)
+                    s = next;
+            }
+            boards[i] = s;
+            State child;
+            do {
+                child = s.move(OPERATORS[random.nextInt(OPERATORS.length)]);
+            } while (child == null);
+            children[i] = child;
+            linearConflictH[i] = linearConflict.h(s, goal);
+        }
+
+        // Open set of a search direction rooted at the goal, holding all
+        // the sample boards
+        NodeStore nodes = new NodeStore(boardSize);
+        this.index = new FrontierIndex(nodes, goal, linearConflict);
+        for (int i = 0; i < BOARDS; i++) {
+            int n = nodes.add(boards[i], NodeStore.NO_PARENT, null, linearConflictH[i]);
+            nodes.setDepth(n, (short) (i % 40));
+            index.add(n);
+        }
+    }
+
+    @Override
+    public long move(int i) {
+        long sum = 0;
+        for (State.Operator op : OPERATORS) {
+            State child = boards[i].move(op);
+            if (child != null)
+                sum += child.getBlank();
+        }
+        return sum;
+    }
+
+    @Override
+    public int hash(int i) {
+        return boards[i].hashCode();
+    }
+
+    @Override
+    public boolean equalsChild(int i) {
+        return boards[i].equals(children[i]);
+    }
+
+    @Override
+    public int manhattanDistance(int i) {
+        return boards[i].manhattanDistance(goal);
+    }
+
+    @Override
+    public int linearConflict(int i) {
+        return linearConflict.h(boards[i], goal);
+    }
+
+    @Override
+    public int linearConflictIncremental(int i) {
+        return linearConflict.h(children[i], boards[i], linearConflictH[i], goal);
+    }
+
+    @Override
+    public int frontToFront(int i) {
+        return index.h_f2f(children[i]);
+    }
+}
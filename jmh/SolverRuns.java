@@ -0,0 +1,41 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import benchmarks.Solves;
+
+/**
+ * Solves of the first boards of an input file, with the linear conflict
+ * heuristic and one search thread per processor, as Puzzle runs them.
+ */
+public class SolverRuns implements Solves {
+
+    private final List<State> initials = new ArrayList<State>();
+    private final State goal;
+
+    /**
+     * @param file       Input file, one board per line
+     * @param boardSize  Number of rows (and columns) of the boards
+     * @param instances  Number of boards to read from the start of the file
+     */
+    public SolverRuns(String file, int boardSize, int instances) {
+        try (BoardReader reader = new BoardReader(file, boardSize)) {
+            State initial;
+            while (initials.size() < instances && (initial = reader.next()) != null)
+                initials.add(initial);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (initials.size() < instances)
+            throw new IllegalArgumentException("'" + file + "' has fewer than " + instances + " boards");
+        this.goal = State.standardGoal(boardSize);
+    }
+
+    @Override
+    public Object solve(String algorithm, int instance) {
+        SolverConfig config = new SolverConfig(new LinearConflict(), algorithm.equals("MMf2f"),
+                algorithm.equals("MMf2fEC"), Runtime.getRuntime().availableProcessors());
+        return Puzzle.solve(algorithm, initials.get(instance), goal, config);
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Heuristics, cycling through the sample boards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HeuristicBenchmark {
+
+    @Param({"3", "4", "5"})
+    int boardSize;
+
+    private HotPaths paths;
+    private int next;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        paths = HotPaths.create(boardSize);
+    }
+
+    /**
+     * @return  Next sample board
+     */
+    private int board() {
+        return next++ & (HotPaths.BOARDS - 1);
+    }
+
+    @Benchmark
+    public int linearConflict() {
+        return paths.linearConflict(board());
+    }
+
+    @Benchmark
+    public int linearConflictIncremental() {
+        return paths.linearConflictIncremental(board());
+    }
+
+    @Benchmark
+    public int frontToFront() {
+        return paths.frontToFront(board());
+    }
+}
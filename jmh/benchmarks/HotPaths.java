@@ -0,0 +1,68 @@
+package benchmarks;
+
+/**
+ * Hot paths of the search, on a fixed sample of boards. The solver lives in
+ * the default package, which JMH doesn't accept for benchmarks and which a
+ * named package cannot refer to, so the benchmarks reach it through this
+ * interface and the default package implements it.
+ */
+public interface HotPaths {
+
+    // Number of sample boards, a power of two
+    int BOARDS = 1024;
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the boards
+     * @return  Hot paths on boards reached by random walks from the goal
+     * @throws ReflectiveOperationException  If the implementation cannot be
+     *                                       created
+     */
+    static HotPaths create(int boardSize) throws ReflectiveOperationException {
+        return (HotPaths) Class.forName("SolverHotPaths").getConstructor(int.class).newInstance(boardSize);
+    }
+
+    /**
+     * @param i  Sample board
+     * @return  Sum over the children of the board of their blank cells
+     */
+    long move(int i);
+
+    /**
+     * @param i  Sample board
+     * @return  Hash code of the board
+     */
+    int hash(int i);
+
+    /**
+     * @param i  Sample board
+     * @return  True if the board equals one of its children, which it never
+     *          does
+     */
+    boolean equalsChild(int i);
+
+    /**
+     * @param i  Sample board
+     * @return  Manhattan distance of the board
+     */
+    int manhattanDistance(int i);
+
+    /**
+     * @param i  Sample board
+     * @return  Linear conflict heuristic of the board
+     */
+    int linearConflict(int i);
+
+    /**
+     * @param i  Sample board
+     * @return  Linear conflict heuristic of a child of the board, computed
+     *          from the board's
+     */
+    int linearConflictIncremental(int i);
+
+    /**
+     * @param i  Sample board
+     * @return  Front-to-front heuristic of a child of the board against an
+     *          open set holding all the sample boards
+     */
+    int frontToFront(int i);
+}
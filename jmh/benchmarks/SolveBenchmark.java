@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Complete solves with the linear conflict heuristic of the first boards of
+ * an input file, by default the 15-puzzles of inputs.txt.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SolveBenchmark {
+
+    @Param({"bidirectional A*", "A*", "IDA*", "parallel IDA*", "HDA*", "MM", "concurrent MM", "MMf2f", "MMf2fEC",
+            "external A*"})
+    String algorithm;
+
+    @Param({"0", "1"})
+    int instance;
+
+    @Param({"inputs.txt"})
+    String inputs;
+
+    @Param({"4"})
+    int boardSize;
+
+    private Solves solves;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        solves = Solves.create(inputs, boardSize, instance + 1);
+    }
+
+    @Benchmark
+    public Object solve() {
+        return solves.solve(algorithm, instance);
+    }
+}
@@ -0,0 +1,28 @@
+package benchmarks;
+
+/**
+ * Complete solves of fixed instances, implemented in the default package
+ * like HotPaths.
+ */
+public interface Solves {
+
+    /**
+     * @param file       Input file, one board per line
+     * @param boardSize  Number of rows (and columns) of the boards
+     * @param instances  Number of boards to read from the start of the file
+     * @return  Solves of the boards
+     * @throws ReflectiveOperationException  If the implementation cannot be
+     *                                       created or the file cannot be read
+     */
+    static Solves create(String file, int boardSize, int instances) throws ReflectiveOperationException {
+        return (Solves) Class.forName("SolverRuns").getConstructor(String.class, int.class, int.class)
+                .newInstance(file, boardSize, instances);
+    }
+
+    /**
+     * @param algorithm  Algorithm name, as accepted by Puzzle.solve
+     * @param instance   Index of the board
+     * @return  Result of the search
+     */
+    Object solve(String algorithm, int instance);
+}
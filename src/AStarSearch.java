@@ -1,9 +1,5 @@
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
 
 public class AStarSearch {
 
@@ -12,69 +8,192 @@ public class AStarSearch {
      *
      * @param initial initial state
      * @param goal    goal state
-     * @return Array the goal node which includes a back pointer
-     *         towards goal state.
+     * @param config  solver settings
+     * @return the result, with the goal node which includes a back
+     *         pointer towards the initial state.
      */
-    public static Node AStarSolve(State initial, State goal, FileWriter myWriter) {
-        try{
-            // Min-heap for removing the node from the open set with the
-            // smallest f-score.
-            Queue<Node> openHeap = new PriorityQueue<Node>();
-
-            // Hash tables with States as keys and Nodes as data for
-            // checking if a state is in the open or closed set.
-            Map<State, Node> openHash = new HashMap<State, Node>();
-            Map<State, Node> closedHash = new HashMap<State, Node>();
-
-            // Add initial node to the open set
-            Node n = new Node(initial, null, null, (initial.h(goal)));
-            openHash.put(initial, n);
-            openHeap.add(n);
-
-            // While there are still elements in the open set
-            while(!openHeap.isEmpty()) {
-                // Remove node with minimum f-score
-                Node n1 = openHeap.poll();
-                State s = n1.getState();
-
-                // Move the node from the open to closed set
-                openHash.remove(s);
-                closedHash.put(s, n1);
-
-                // For each of the four possible operators
-                for (State.Operator op : State.Operator.values()) {
-                    // Create a new state that is the result of the move
-                    State newState = s.move(op);
-
-                    // If the move is invalid or has already been tried,
-                    // go on to next move
-                    if (newState == null || closedHash.containsKey(newState))
-                        continue;
-
-                    // If the new state is not already in the open set
-                    if (!openHash.containsKey(newState)) {
-                        // Create a new Node for this state
-                        Node newNode = new Node(newState, n1, op, (newState.h(goal)));
-                        // If goal state is found - finish
-                        if (newState.equals(goal)){
-                            int openNodeCount = openHash.size()+ 1;
-                            int closedNodeCount = closedHash.size();
-                            myWriter.write("Found path: depth:" + newNode.getDepth() + "\n");
-                            myWriter.write("Nodes Generated: " + (openNodeCount + closedNodeCount));
-                            myWriter.write(" (" + openNodeCount + " open/");
-                            myWriter.write(closedNodeCount + " closed)\n");
-                            return newNode;
-                        }
-                        else{
-                           openHeap.add(newNode);
-                           openHash.put(newState, newNode);
-                        }
+    public static SearchResult AStarSolve(State initial, State goal, SolverConfig config) {
+        return AStarSolve(initial, goal, config, SearchMetrics.of("A*", config));
+    }
+
+    /**
+     * Solve n-puzzle using A* search Algorithm
+     *
+     * @param initial initial state
+     * @param goal    goal state
+     * @param config  solver settings
+     * @param metrics metrics filled in during the search
+     * @return the result, with the goal node which includes a back
+     *         pointer towards the initial state.
+     */
+    public static SearchResult AStarSolve(State initial, State goal, SolverConfig config, SearchMetrics metrics) {
+        if (initial.getBoardSize() <= RankedStateSet.MAX_BOARD_SIZE)
+            return rankedSolve(initial, goal, config, metrics);
+
+        final int FWD = SearchMetrics.FWD;
+        Heuristic heuristic = config.getHeuristic();
+
+        // Bucket queue for removing the node from the open set with
+        // the smallest f-score.
+        BucketQueue openHeap = new BucketQueue();
+
+        // Every node generated so far, and a hash table from States
+        // to their index in it for checking if a state is in the open
+        // or closed set.
+        NodeStore nodes = new NodeStore(initial.getBoardSize());
+        StateTable stateHash = new StateTable();
+        int closedNodeCount = 0;
+
+        // Add initial node to the open set
+        int root = nodes.add(initial, NodeStore.NO_PARENT, null, heuristic.h(initial, goal));
+        stateHash.put(initial, root);
+        openHeap.push(root, nodes.getFScore(root));
+
+        // While there are still elements in the open set
+        while(!openHeap.isEmpty()) {
+            // Remove node with minimum f-score
+            int n1 = openHeap.pop();
+            State s = nodes.getState(n1);
+
+            // Move the node from the open to closed set
+            nodes.setClosed(n1, true);
+            closedNodeCount++;
+            metrics.expanded(FWD);
+            metrics.sizes(FWD, openHeap.size() + 1, closedNodeCount);
+
+            // For each of the four possible operators
+            for (State.Operator op : State.Operator.values()) {
+                // Create a new state that is the result of the move
+                State newState = s.move(op);
+
+                // If the move is invalid or has already been tried,
+                // go on to next move
+                if (newState == null)
+                    continue;
+                metrics.generated(FWD);
+
+                // If the new state is not already in the open or closed set
+                if (stateHash.get(newState) == StateTable.NOT_FOUND) {
+                    // Create a new Node for this state
+                    long t = metrics.heuristicStart();
+                    short h = heuristic.h(newState, s, nodes.getHeuristic(n1), goal);
+                    metrics.heuristicEnd(t);
+                    int newNode = nodes.add(newState, n1, op, h);
+                    // If goal state is found - finish
+                    if (newState.equals(goal)){
+                        metrics.met(true);
+                        metrics.setSolutionLength(nodes.getDepth(newNode));
+                        int openNodeCount = stateHash.size() - closedNodeCount + 1;
+                        return SearchResult.solved("Found path: depth:" + nodes.getDepth(newNode) + "\n"
+                                + "Nodes Generated: " + (openNodeCount + closedNodeCount)
+                                + " (" + openNodeCount + " open/" + closedNodeCount + " closed)\n",
+                                new Node(nodes, newNode));
+                    }
+                    else{
+                       openHeap.push(newNode, nodes.getFScore(newNode));
+                       stateHash.put(newState, newNode);
                     }
                 }
             }
-        }catch(IOException e) {
-            System.out.println("An error occurred while writing to output file");
         }
-        return null;    // No solution found
+        return SearchResult.noSolution("");
+    }
+
+    /**
+     * A* for boards small enough to index every reachable board by its
+     * rank. The open set holds ranks, the depth and heuristic of each
+     * board are kept in arrays indexed by rank, and the closed set and
+     * the operator that reached each board are a RankedStateSet. Boards
+     * are expanded in the same order as by the general search.
+     *
+     * @param initial initial state
+     * @param goal    goal state
+     * @param config  solver settings
+     * @param metrics metrics filled in during the search
+     * @return the result, with the goal node which includes a back
+     *         pointer towards the initial state.
+     */
+    private static SearchResult rankedSolve(State initial, State goal, SolverConfig config, SearchMetrics metrics) {
+        final int FWD = SearchMetrics.FWD;
+        Heuristic heuristic = config.getHeuristic();
+
+        BucketQueue openHeap = new BucketQueue();
+        RankedStateSet seen = new RankedStateSet(initial.getBoardSize());
+        byte[] depths = new byte[seen.capacity()];
+        byte[] heuristics = new byte[seen.capacity()];
+        int closedNodeCount = 0;
+
+        int root = (int) PermutationRank.rank(initial);
+        seen.add(root, null);
+        heuristics[root] = (byte) heuristic.h(initial, goal);
+        openHeap.push(root, heuristics[root]);
+
+        while (!openHeap.isEmpty()) {
+            int r1 = openHeap.pop();
+            State s = PermutationRank.unrank(r1, initial);
+            int g = depths[r1] + 1;
+
+            closedNodeCount++;
+            metrics.expanded(FWD);
+            metrics.sizes(FWD, openHeap.size() + 1, closedNodeCount);
+
+            for (State.Operator op : State.Operator.values()) {
+                State newState = s.move(op);
+                if (newState == null)
+                    continue;
+                metrics.generated(FWD);
+
+                int r2 = (int) PermutationRank.rank(newState);
+                if (seen.contains(r2))
+                    continue;
+                long t = metrics.heuristicStart();
+                short h = heuristic.h(newState, s, heuristics[r1], goal);
+                metrics.heuristicEnd(t);
+                seen.add(r2, op);
+                if (newState.equals(goal)) {
+                    metrics.met(true);
+                    metrics.setSolutionLength(g);
+                    int openNodeCount = seen.size() - closedNodeCount;
+                    return SearchResult.solved("Found path: depth:" + g + "\n"
+                            + "Nodes Generated: " + (openNodeCount + closedNodeCount)
+                            + " (" + openNodeCount + " open/" + closedNodeCount + " closed)\n",
+                            toNode(initial, goal, heuristic, seen, root));
+                }
+                depths[r2] = (byte) g;
+                heuristics[r2] = (byte) h;
+                openHeap.push(r2, g + h);
+            }
+        }
+        return SearchResult.noSolution("");
+    }
+
+    /**
+     * @param initial    Initial state
+     * @param goal       Goal state
+     * @param heuristic  Heuristic used by the search
+     * @param seen       Boards reached, with the operator that reached them
+     * @param root       Rank of the initial state
+     * @return  Goal node of the found path, with back pointers towards the
+     *          initial state
+     */
+    private static Node toNode(State initial, State goal, Heuristic heuristic, RankedStateSet seen, int root) {
+        // Operators from the goal back to the initial state
+        List<State.Operator> path = new ArrayList<State.Operator>();
+        State s = goal;
+        for (int r = (int) PermutationRank.rank(s); r != root; r = (int) PermutationRank.rank(s)) {
+            State.Operator op = seen.getMove(r);
+            path.add(op);
+            s = s.move(op.reverse());
+        }
+
+        NodeStore nodes = new NodeStore(initial.getBoardSize());
+        s = initial;
+        int n = nodes.add(s, NodeStore.NO_PARENT, null, heuristic.h(s, goal));
+        for (int i = path.size() - 1; i >= 0; i--) {
+            State next = s.move(path.get(i));
+            n = nodes.add(next, n, path.get(i), heuristic.h(next, s, nodes.getHeuristic(n), goal));
+            s = next;
+        }
+        return new Node(nodes, n);
     }
 }
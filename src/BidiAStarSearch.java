@@ -1,11 +1,5 @@
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
 
 public class BidiAStarSearch {
 
@@ -16,129 +10,141 @@ public class BidiAStarSearch {
      *
      * @param fwdInitial initial state
      * @param fwdGoal    goal state
-     * @return Array of 2 Nodes where both forward and backward
-     *         paths meet.  First node has back pointer towards
-     *         initial state and second node has back pointer
+     * @param config     solver settings
+     * @return the result, with 2 Nodes where both forward and
+     *         backward paths meet.  First node has back pointer
+     *         towards initial state and second node has back pointer
      *         towards goal state.
      */
-    public static Node[] biDirectionalSolve(State fwdInitial, State fwdGoal, FileWriter myWriter) {
-        try {
-            final int FWD = 0;        // Forward direction
-            final int REV = 1;        // Backward direction
-
-            int[] directions = {FWD, REV};
-            // Min-heap for removing the node from the open set with the
-            // smallest f-score.
-            List<Queue<Node>> openHeap = new ArrayList<Queue<Node>>(2);
-
-            // Hash tables with States as keys and Nodes as data for
-            // checking if a state is in the open or closed set.
-            List<Map<State, Node>> openHash = new ArrayList<Map<State, Node>>(2);
-            List<Map<State, Node>> closedHash = new ArrayList<Map<State, Node>>(2);
-
-            // Initial and goal states
-            State[] initial = new State[]{fwdInitial, fwdGoal};
-            State[] goal = new State[]{fwdGoal, fwdInitial};
-
-            // For both forward and backward directions
-            for (int i : directions) {
-                // Create empty heap and hash maps
-                openHeap.add(new PriorityQueue<Node>());
-                openHash.add(new HashMap<State, Node>());
-                closedHash.add(new HashMap<State, Node>());
-
-                // Add initial node to the open set
-                Node n = new Node(initial[i], null, null, (initial[i].h(goal[i])));
-                openHash.get(i).put(initial[i], n);
-                openHeap.get(i).add(n);
-            }
+    public static SearchResult biDirectionalSolve(State fwdInitial, State fwdGoal, SolverConfig config) {
+        return biDirectionalSolve(fwdInitial, fwdGoal, config, SearchMetrics.of("bidirectional A*", config));
+    }
+
+    /**
+     * Solve n-puzzle using bidirectional A* search Algorithm
+     *
+     * @param fwdInitial initial state
+     * @param fwdGoal    goal state
+     * @param config     solver settings
+     * @param metrics    metrics filled in during the search
+     * @return the result, with 2 Nodes where both forward and
+     *         backward paths meet.  First node has back pointer
+     *         towards initial state and second node has back pointer
+     *         towards goal state.
+     */
+    public static SearchResult biDirectionalSolve(State fwdInitial, State fwdGoal, SolverConfig config, SearchMetrics metrics) {
+        Heuristic heuristic = config.getHeuristic();
+        final int FWD = 0;        // Forward direction
+        final int REV = 1;        // Backward direction
+
+        int[] directions = {FWD, REV};
+        // Bucket queue for removing the node from the open set with
+        // the smallest f-score.
+        List<BucketQueue> openHeap = new ArrayList<BucketQueue>(2);
+
+        // Every node generated in each direction, and indexes from States
+        // to their index in it for checking if a state is in the open or
+        // closed set. The indexes are ranked for boards up to 3x3.
+        List<NodeStore> nodes = new ArrayList<NodeStore>(2);
+        List<StateIndex> stateHash = new ArrayList<StateIndex>(2);
+        int[] closedCount = new int[2];
+
+        // Initial and goal states
+        State[] initial = new State[]{fwdInitial, fwdGoal};
+        State[] goal = new State[]{fwdGoal, fwdInitial};
+
+        // For both forward and backward directions
+        for (int i : directions) {
+            // Create empty heap and hash maps
+            openHeap.add(new BucketQueue());
+            nodes.add(new NodeStore(initial[i].getBoardSize()));
+            stateHash.add(StateIndex.of(initial[i], goal[i]));
+
+            // Add initial node to the open set
+            int root = nodes.get(i).add(initial[i], NodeStore.NO_PARENT, null, heuristic.h(initial[i], goal[i]));
+            stateHash.get(i).put(initial[i], root);
+            openHeap.get(i).push(root, nodes.get(i).getFScore(root));
+        }
 
-            // For first iteration we start from the forward direction
-            int i = FWD; // Index into our lists for the current direction
-            int j = REV; // Index into our lists for the opposite direction
-
-            // While there are still elements in the open set
-            while (!openHeap.get(i).isEmpty()) {
-                // Remove node with minimum f-score
-                Node n = openHeap.get(i).poll();
-                State s = n.getState();
-
-                // Move the node from the open to closed set
-                openHash.get(i).remove(s);
-                closedHash.get(i).put(s, n);
-
-                // For each of the four possible operators
-                for (State.Operator op : State.Operator.values()) {
-                    // Create a new state that is the result of the move
-                    State newState = s.move(op);
-
-                    // If the move is invalid or has already been tried,
-                    // go on to next move
-                    if (newState == null || closedHash.get(i).containsKey(newState))
-                        continue;
-
-                    // If the new state is not already in the open set
-                    if (!openHash.get(i).containsKey(newState)) {
-                        // Create a new Node for this state
-                        Node newNode = new Node(newState, n, op, (newState.h(goal[i])));
-
-                        // Check for a match in the nodes of the opposite direction
-                        Node matchedNode = null;
-                        if (openHash.get(j).containsKey(newState))
-                            matchedNode = openHash.get(j).get(newState);
-                        if (closedHash.get(j).containsKey(newState))
-                            matchedNode = closedHash.get(j).get(newState);
-
-                        // If there is a match, return the pair of nodes
-                        if (matchedNode != null) {
-                            int openNodeCount = openHash.get(i).size() + openHash.get(j).size() + 1;
-                            int closedNodeCount = closedHash.get(i).size() + closedHash.get(j).size();
-
-                            if (i == FWD) {
-                                myWriter.write("Found path: Forward depth:" + newNode.getDepth() + " backward depth: " + matchedNode.getDepth() + "\n");
-                            } else {
-                                myWriter.write("Found path: Forward depth:" + matchedNode.getDepth() + " backward depth: " + newNode.getDepth() + "\n");
-                            }
-                            myWriter.write("Nodes Generated: " + (openNodeCount + closedNodeCount));
-                            myWriter.write(" (" + openNodeCount + " open/");
-                            myWriter.write(closedNodeCount + " closed)\n");
-                            if (i == FWD)
-                                return new Node[]{newNode, matchedNode};
-                            else
-                                return new Node[]{matchedNode, newNode};
-                            // Otherwise, add the new node to the open set
-                        } else {
-                            openHash.get(i).put(newState, newNode);
-                            openHeap.get(i).add(newNode);
-                        }
-                    } else { // If the new state is already in the open set
-                        // Retrieve the existing node
-                        Node existingNode = openHash.get(i).get(newState);
-
-                        // If we have found a shorter path to this node
-                        if (n.getDepth() + 1 < existingNode.getDepth()) {
-
-                            // Update node depth, back pointer, and operator
-                            existingNode.setDepth((short) (n.getDepth() + 1));
-                            existingNode.setBackPtr(n);
-                            existingNode.setOp(op);
-
-                            // Remove and re-add node from heap.  This will
-                            // cause the node to be placed in the proper
-                            // minheap order.
-                            openHeap.get(i).remove(existingNode);
-                            openHeap.get(i).add(existingNode);
-                        }
+        // For first iteration we start from the forward direction
+        int i = FWD; // Index into our lists for the current direction
+        int j = REV; // Index into our lists for the opposite direction
+
+        // While there are still elements in the open set
+        while (!openHeap.get(i).isEmpty()) {
+            // Remove node with minimum f-score
+            int n = openHeap.get(i).pop();
+            State s = nodes.get(i).getState(n);
+
+            // Move the node from the open to closed set
+            nodes.get(i).setClosed(n, true);
+            closedCount[i]++;
+            metrics.expanded(i);
+            metrics.sizes(i, openHeap.get(i).size() + 1, closedCount[i]);
+
+            // For each of the four possible operators
+            for (State.Operator op : State.Operator.values()) {
+                // Create a new state that is the result of the move
+                State newState = s.move(op);
+
+                // If the move is invalid, go on to next move
+                if (newState == null)
+                    continue;
+                metrics.generated(i);
+
+                // If the move has already been tried, go on to next move
+                int existingIndex = stateHash.get(i).get(newState);
+                if (existingIndex != StateTable.NOT_FOUND && nodes.get(i).isClosed(existingIndex))
+                    continue;
+
+                // If the new state is not already in the open set
+                if (existingIndex == StateTable.NOT_FOUND) {
+                    // Create a new Node for this state
+                    long t = metrics.heuristicStart();
+                    short h = heuristic.h(newState, s, nodes.get(i).getHeuristic(n), goal[i]);
+                    metrics.heuristicEnd(t);
+                    int newNode = nodes.get(i).add(newState, n, op, h);
+
+                    // Check for a match in the nodes of the opposite direction
+                    int matchedNode = stateHash.get(j).get(newState);
+
+                    // If there is a match, return the pair of nodes
+                    if (matchedNode != StateTable.NOT_FOUND) {
+                        metrics.met(true);
+                        metrics.setSolutionLength(nodes.get(i).getDepth(newNode) + nodes.get(j).getDepth(matchedNode));
+                        int closedNodeCount = closedCount[i] + closedCount[j];
+                        int openNodeCount = stateHash.get(i).size() + stateHash.get(j).size() - closedNodeCount + 1;
+
+                        Node fwdNode = (i == FWD) ? new Node(nodes.get(i), newNode) : new Node(nodes.get(j), matchedNode);
+                        Node revNode = (i == FWD) ? new Node(nodes.get(j), matchedNode) : new Node(nodes.get(i), newNode);
+                        return SearchResult.solved("Found path: Forward depth:" + fwdNode.getDepth() + " backward depth: " + revNode.getDepth() + "\n"
+                                + "Nodes Generated: " + (openNodeCount + closedNodeCount)
+                                + " (" + openNodeCount + " open/" + closedNodeCount + " closed)\n",
+                                fwdNode, revNode);
+                        // Otherwise, add the new node to the open set
+                    } else {
+                        stateHash.get(i).put(newState, newNode);
+                        openHeap.get(i).push(newNode, nodes.get(i).getFScore(newNode));
                     }
-                }
+                } else { // If the new state is already in the open set
+                    // If we have found a shorter path to this node
+                    if (nodes.get(i).getDepth(n) + 1 < nodes.get(i).getDepth(existingIndex)) {
 
-                // Swap directions
-                i = 1 - i;
-                j = 1 - j;
+                        // Update node depth, back pointer, and operator
+                        nodes.get(i).setDepth(existingIndex, (short) (nodes.get(i).getDepth(n) + 1));
+                        nodes.get(i).setParent(existingIndex, n);
+                        nodes.get(i).setOp(existingIndex, op);
+
+                        // Move the node to the bucket of its new f-score
+                        openHeap.get(i).update(existingIndex, nodes.get(i).getFScore(existingIndex));
+                    }
+                }
             }
-        }catch(IOException e) {
-                System.out.println("An error occurred while writing to output file");
+
+            // Swap directions
+            i = 1 - i;
+            j = 1 - j;
         }
-        return null;    // No solution found
+        return SearchResult.noSolution("");
     }
 }
@@ -0,0 +1,139 @@
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads initial states from an input file one line at a time, so that only
+ * the board being parsed is held in memory however large the file is. Each
+ * non-empty line holds the tiles of one board in row-major order, separated
+ * by spaces, tabs or commas, with 0 for the blank. The bytes are tokenized
+ * directly from a read buffer. A line which is not a valid board is
+ * reported and skipped.
+ */
+public class BoardReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private final int boardSize;
+    private final int cells;
+
+    // Tiles of the line being parsed, for boards larger than 4x4
+    private final byte[][] board;
+
+    private long lineNumber;
+    private long skipped;
+
+    /**
+     * @param file       Input file
+     * @param boardSize  Number of rows (and columns) of the boards
+     * @throws IOException  If the file cannot be opened
+     */
+    public BoardReader(String file, int boardSize) throws IOException {
+        if (boardSize < 2 || boardSize > State.MAX_BOARD_SIZE)
+            throw new IllegalArgumentException("Board size " + boardSize + " is not supported");
+        this.boardSize = boardSize;
+        this.cells = boardSize*boardSize;
+        this.board = (boardSize > State.MAX_PACKED_SIZE) ? new byte[boardSize][boardSize] : null;
+        this.in = new FileInputStream(file);
+    }
+
+    /**
+     * @return  Next valid board of the file, or null at the end of the file
+     * @throws IOException  If the file cannot be read
+     */
+    public State next() throws IOException {
+        while (true) {
+            int c = read();
+            if (c < 0)
+                return null;
+            lineNumber++;
+
+            long packed = 0;
+            int blank = -1;
+            long seen = 0;
+            int count = 0;
+            String error = null;
+
+            // Tokenize the line
+            while (c >= 0 && c != '\n') {
+                if (c >= '0' && c <= '9') {
+                    int tile = 0;
+                    while (c >= '0' && c <= '9') {
+                        if (tile < cells)
+                            tile = 10*tile + (c - '0');
+                        c = read();
+                    }
+                    if (error == null) {
+                        if (count == cells)
+                            error = "more than " + cells + " tiles";
+                        else if (tile >= cells)
+                            error = "tile " + tile + " out of range";
+                        else if ((seen & (1L << tile)) != 0)
+                            error = "tile " + tile + " repeated";
+                    }
+                    if (error == null) {
+                        seen |= 1L << tile;
+                        if (board != null)
+                            board[count / boardSize][count % boardSize] = (byte) tile;
+                        else
+                            packed |= (long) tile << (count << 2);
+                        if (tile == 0)
+                            blank = count;
+                    }
+                    count++;
+                    continue;
+                }
+                if (c != ' ' && c != '\t' && c != ',' && c != '\r' && error == null)
+                    error = "unexpected character '" + (char) c + "'";
+                c = read();
+            }
+
+            if (count == 0 && error == null)
+                continue;    // Skip blank lines
+            if (error == null && count < cells)
+                error = "expected " + cells + " tiles, found " + count;
+            if (error != null) {
+                skipped++;
+                System.out.println("Skipping line " + lineNumber + " of input: " + error);
+                continue;
+            }
+            if (board != null)
+                return new State(board);
+            return new State(boardSize, packed, blank);
+        }
+    }
+
+    /**
+     * @return  Number of lines skipped so far because they were invalid
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * @return  Next byte of the file, or -1 at the end of the file
+     * @throws IOException  If the file cannot be read
+     */
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+}
@@ -0,0 +1,323 @@
+import java.util.Arrays;
+
+/**
+ * Two-level bucket priority queue of node indices with small non-negative
+ * integer keys. Nodes are ordered by a primary key (e.g. f-score or MM
+ * priority) and, within a primary key, by a secondary key (e.g. depth).
+ * Each bucket is a doubly linked list threaded through arrays indexed by
+ * node, so push, remove and pop are O(1) apart from skipping buckets that
+ * became empty.
+ */
+public class BucketQueue {
+
+    // Returned by peek and pop when the queue is empty
+    public static final int EMPTY = -1;
+
+    // Key of a node which is not in the queue
+    private static final int NOT_QUEUED = -1;
+
+    private static final int SECONDARY_BITS = 16;
+    private static final int SECONDARY_MASK = (1 << SECONDARY_BITS) - 1;
+
+    // Per node links and packed (primary, secondary) key
+    private int[] next;
+    private int[] prev;
+    private int[] keys;
+
+    // heads[p][s] is the first node with primary key p and secondary key s
+    private int[][] heads;
+    // Number of nodes and lowest possibly non-empty secondary key for
+    // each primary key
+    private int[] counts;
+    private int[] minSecondary;
+
+    // Lowest possibly non-empty primary key
+    private int minPrimary;
+    private int size;
+
+    public BucketQueue() {
+        next = new int[1024];
+        prev = new int[1024];
+        keys = new int[1024];
+        Arrays.fill(keys, NOT_QUEUED);
+        heads = new int[64][];
+        counts = new int[64];
+        minSecondary = new int[64];
+        minPrimary = Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return  Number of nodes in the queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return  True if the queue is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param node  Node index
+     * @return  True if the node is in the queue
+     */
+    public boolean contains(int node) {
+        return node < keys.length && keys[node] != NOT_QUEUED;
+    }
+
+    /**
+     * @param node  Node index
+     * @param key   Priority of the node
+     */
+    public void push(int node, int key) {
+        push(node, key, 0);
+    }
+
+    /**
+     * @param node       Node index, which must not already be in the queue
+     * @param primary    Primary priority of the node
+     * @param secondary  Priority among nodes with the same primary priority
+     */
+    public void push(int node, int primary, int secondary) {
+        if (primary < 0 || secondary < 0 || secondary > SECONDARY_MASK)
+            throw new IllegalArgumentException("Key out of range: " + primary + "/" + secondary);
+        if (node >= keys.length)
+            growNodes(node + 1);
+        if (primary >= heads.length)
+            growPrimary(primary + 1);
+        if (heads[primary] == null) {
+            heads[primary] = new int[Math.max(16, secondary + 1)];
+            Arrays.fill(heads[primary], EMPTY);
+        } else if (secondary >= heads[primary].length) {
+            int oldLength = heads[primary].length;
+            heads[primary] = Arrays.copyOf(heads[primary], Math.max(2*oldLength, secondary + 1));
+            Arrays.fill(heads[primary], oldLength, heads[primary].length, EMPTY);
+        }
+
+        // Link the node in at the head of its bucket
+        int head = heads[primary][secondary];
+        next[node] = head;
+        prev[node] = EMPTY;
+        if (head != EMPTY)
+            prev[head] = node;
+        heads[primary][secondary] = node;
+        keys[node] = (primary << SECONDARY_BITS) | secondary;
+
+        if (counts[primary]++ == 0 || secondary < minSecondary[primary])
+            minSecondary[primary] = secondary;
+        if (primary < minPrimary)
+            minPrimary = primary;
+        size++;
+    }
+
+    /**
+     * @param node  Node index
+     * @return  True if the node was in the queue
+     */
+    public boolean remove(int node) {
+        if (!contains(node))
+            return false;
+
+        int primary = keys[node] >>> SECONDARY_BITS;
+        int secondary = keys[node] & SECONDARY_MASK;
+        if (prev[node] == EMPTY)
+            heads[primary][secondary] = next[node];
+        else
+            next[prev[node]] = next[node];
+        if (next[node] != EMPTY)
+            prev[next[node]] = prev[node];
+
+        keys[node] = NOT_QUEUED;
+        counts[primary]--;
+        size--;
+        return true;
+    }
+
+    /**
+     * Move a node to the bucket of its new key, or add it to the queue if
+     * it is not already queued.
+     *
+     * @param node  Node index
+     * @param key   New priority of the node
+     */
+    public void update(int node, int key) {
+        update(node, key, 0);
+    }
+
+    /**
+     * Move a node to the bucket of its new keys, or add it to the queue if
+     * it is not already queued.
+     *
+     * @param node       Node index
+     * @param primary    New primary priority of the node
+     * @param secondary  New priority among nodes with the same primary priority
+     */
+    public void update(int node, int primary, int secondary) {
+        if (contains(node) && keys[node] == ((primary << SECONDARY_BITS) | secondary))
+            return;
+        remove(node);
+        push(node, primary, secondary);
+    }
+
+    /**
+     * @return  Node with the lowest key, or EMPTY
+     */
+    public int peek() {
+        if (size == 0)
+            return EMPTY;
+        int primary = peekPrimary();
+        return heads[primary][peekSecondary()];
+    }
+
+    /**
+     * @return  Node with the lowest key, which is removed from the queue,
+     *          or EMPTY
+     */
+    public int pop() {
+        int node = peek();
+        if (node != EMPTY)
+            remove(node);
+        return node;
+    }
+
+    /**
+     * @return  Lowest primary key in the queue, or Integer.MAX_VALUE if
+     *          the queue is empty
+     */
+    public int peekPrimary() {
+        if (size == 0)
+            return Integer.MAX_VALUE;
+        while (counts[minPrimary] == 0)
+            minPrimary++;
+        return minPrimary;
+    }
+
+    /**
+     * @return  Lowest secondary key among the nodes with the lowest
+     *          primary key, or Integer.MAX_VALUE if the queue is empty
+     */
+    public int peekSecondary() {
+        if (size == 0)
+            return Integer.MAX_VALUE;
+        int primary = peekPrimary();
+        int[] buckets = heads[primary];
+        while (buckets[minSecondary[primary]] == EMPTY)
+            minSecondary[primary]++;
+        return minSecondary[primary];
+    }
+
+    /**
+     * Nodes are visited in key order by calling first() and then next()
+     * until EMPTY is returned. The queue must not be modified meanwhile.
+     *
+     * @return  Node with the lowest key, or EMPTY
+     */
+    public int first() {
+        return peek();
+    }
+
+    /**
+     * @param node  Node returned by first() or next()
+     * @return  Node following the given node in key order, or EMPTY
+     */
+    public int next(int node) {
+        if (next[node] != EMPTY)
+            return next[node];
+
+        int primary = keys[node] >>> SECONDARY_BITS;
+        int secondary = (keys[node] & SECONDARY_MASK) + 1;
+        for (; primary < heads.length; primary++, secondary = 0) {
+            if (counts[primary] == 0)
+                continue;
+            int[] buckets = heads[primary];
+            for (; secondary < buckets.length; secondary++)
+                if (buckets[secondary] != EMPTY)
+                    return buckets[secondary];
+        }
+        return EMPTY;
+    }
+
+    /**
+     * @param node  Node in the queue
+     * @return  Primary key of the node
+     */
+    public int primaryKey(int node) {
+        return keys[node] >>> SECONDARY_BITS;
+    }
+
+    /**
+     * @param node  Node in the queue
+     * @return  Secondary key of the node
+     */
+    public int secondaryKey(int node) {
+        return keys[node] & SECONDARY_MASK;
+    }
+
+    /**
+     * @return  Upper bound (exclusive) of the primary keys in the queue
+     */
+    public int primaryLimit() {
+        return heads.length;
+    }
+
+    /**
+     * @param primary  Primary key
+     * @return  Upper bound (exclusive) of the secondary keys in the queue
+     *          for the primary key
+     */
+    public int secondaryLimit(int primary) {
+        return (primary < heads.length && heads[primary] != null) ? heads[primary].length : 0;
+    }
+
+    /**
+     * @param primary  Primary key
+     * @return  Number of nodes with the primary key
+     */
+    public int count(int primary) {
+        return (primary < counts.length) ? counts[primary] : 0;
+    }
+
+    /**
+     * @param primary    Primary key
+     * @param secondary  Secondary key
+     * @return  First node of the bucket, or EMPTY
+     */
+    public int bucketHead(int primary, int secondary) {
+        if (secondary < 0 || secondary >= secondaryLimit(primary))
+            return EMPTY;
+        return heads[primary][secondary];
+    }
+
+    /**
+     * @param node  Node in the queue
+     * @return  Next node in the same bucket, or EMPTY
+     */
+    public int nextInBucket(int node) {
+        return next[node];
+    }
+
+    /**
+     * @param length  Minimum number of node slots
+     */
+    private void growNodes(int length) {
+        int oldLength = keys.length;
+        int newLength = Math.max(2*oldLength, length);
+        next = Arrays.copyOf(next, newLength);
+        prev = Arrays.copyOf(prev, newLength);
+        keys = Arrays.copyOf(keys, newLength);
+        Arrays.fill(keys, oldLength, newLength, NOT_QUEUED);
+    }
+
+    /**
+     * @param length  Minimum number of primary keys
+     */
+    private void growPrimary(int length) {
+        int newLength = Math.max(2*heads.length, length);
+        heads = Arrays.copyOf(heads, newLength);
+        counts = Arrays.copyOf(counts, newLength);
+        minSecondary = Arrays.copyOf(minSecondary, newLength);
+    }
+}
@@ -0,0 +1,298 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MM search with the forward and backward directions expanded at the same
+ * time on two threads. Each direction keeps its nodes and open set to
+ * itself. The directions share only the g-values of the states each has
+ * generated, the best path length U, and lower bounds of their open sets.
+ *
+ * A direction publishes a child's g-value before looking the child up in
+ * the opposite direction's table. So when both directions generate the same
+ * state, at least one of them sees the other's entry. After every expansion
+ * a direction publishes its minimal priority, f-score and depth. It stops
+ * once U reaches the MM lower bound computed from its own current values and
+ * the values last published by the opposite direction. Those published
+ * minima never decrease, so a stale value is still a valid lower bound: a
+ * child's heuristic is raised to its parent's minus one (pathmax), which
+ * keeps f from decreasing along a path even with an inconsistent heuristic
+ * such as a pattern database.
+ *
+ * Each direction fills in metrics of its own, which are added up once both
+ * have stopped.
+ *
+ * The front-to-front heuristics read the opposite direction's open set, so
+ * those variants run on the sequential MMsearch.
+ */
+public class ConcurrentMMsearch {
+
+    private static final int FWD = 0;        // Forward direction
+    private static final int REV = 1;        // Backward direction
+
+    private final Direction[] directions = new Direction[2];
+
+    // Best path length U in the high half and the forward depth of its
+    // meeting point in the low half
+    private final AtomicLong best = new AtomicLong((long) Integer.MAX_VALUE << 32);
+
+    // Set once a direction found that U is optimal or no path exists
+    private volatile boolean done;
+
+    /**
+     * @param fwdInitial  Initial state
+     * @param fwdGoal     Goal state
+     * @param config      Solver settings
+     * @param metrics     Metrics of the search, from which the directions'
+     *                    are made
+     */
+    private ConcurrentMMsearch(State fwdInitial, State fwdGoal, SolverConfig config, SearchMetrics metrics) {
+        directions[FWD] = new Direction(FWD, fwdInitial, fwdGoal, config.getHeuristic(), metrics.forThread());
+        directions[REV] = new Direction(REV, fwdGoal, fwdInitial, config.getHeuristic(), metrics.forThread());
+    }
+
+    /**
+     * Solve n-puzzle using MM search Algorithm, expanding both directions
+     * concurrently
+     *
+     * @param fwdInitial initial state
+     * @param fwdGoal    goal state
+     * @param config     solver settings
+     * @return the result, with the forward and backward meeting nodes
+     *         of the shortest path.
+     */
+    public static SearchResult MMSolve(State fwdInitial, State fwdGoal, SolverConfig config) {
+        return MMSolve(fwdInitial, fwdGoal, config, SearchMetrics.of("concurrent MM", config));
+    }
+
+    /**
+     * Solve n-puzzle using MM search Algorithm, expanding both directions
+     * concurrently
+     *
+     * @param fwdInitial initial state
+     * @param fwdGoal    goal state
+     * @param config     solver settings
+     * @param metrics    metrics filled in during the search
+     * @return the result, with the forward and backward meeting nodes
+     *         of the shortest path.
+     */
+    public static SearchResult MMSolve(State fwdInitial, State fwdGoal, SolverConfig config, SearchMetrics metrics) {
+        if (config.isF2f() || config.isF2fEndCondition())
+            return MMsearch.MMSolve(fwdInitial, fwdGoal, config, metrics);
+
+        ConcurrentMMsearch search = new ConcurrentMMsearch(fwdInitial, fwdGoal, config, metrics);
+        Thread backward = new Thread(search.directions[REV], "MM backward");
+        backward.start();
+        search.directions[FWD].run();
+        try {
+            backward.join();
+        } catch (InterruptedException e) {
+            search.done = true;
+            Thread.currentThread().interrupt();
+            return SearchResult.noSolution("Interrupted\n");
+        }
+        for (Direction d : search.directions) {
+            if (d.failure != null)
+                throw new RuntimeException("MM " + (d.dir == FWD ? "forward" : "backward") + " search failed", d.failure);
+            metrics.add(d.metrics);
+        }
+
+        long b = search.best.get();
+        int U = (int) (b >>> 32);
+        if (U == Integer.MAX_VALUE)
+            return SearchResult.noSolution("");
+
+        int fwdDepth = (int) b;
+        metrics.setSolutionLength(U);
+
+        // Meeting point of U, kept by the direction which lowered U to it.
+        // Both directions stored the state, and no thread runs anymore.
+        Direction meeting = (search.directions[FWD].meetLength == U) ? search.directions[FWD] : search.directions[REV];
+        Node fwdNode = new Node(search.directions[FWD].nodes, search.directions[FWD].stateHash.get(meeting.meetState));
+        Node revNode = new Node(search.directions[REV].nodes, search.directions[REV].stateHash.get(meeting.meetState));
+        int closedNodeCount = search.directions[FWD].closedCount + search.directions[REV].closedCount;
+        int openNodeCount = search.directions[FWD].stateHash.size() + search.directions[REV].stateHash.size() - closedNodeCount + 1;
+
+        return SearchResult.solved("Found path: Forward depth:" + fwdDepth + " backward depth: " + (U - fwdDepth) + "\n"
+                + "Nodes Generated: " + (openNodeCount + closedNodeCount)
+                + " (" + openNodeCount + " open/" + closedNodeCount + " closed)\n"
+                + "Path length: " + U + "\n", fwdNode, revNode);
+    }
+
+    /**
+     * Lower U to the length of a path through a meeting point, if shorter.
+     *
+     * @param fwdDepth  Depth of the meeting point in the forward direction
+     * @param revDepth  Depth of the meeting point in the backward direction
+     * @return  True if U was lowered
+     */
+    private boolean offer(int fwdDepth, int revDepth) {
+        long candidate = ((long) (fwdDepth + revDepth) << 32) | fwdDepth;
+        long current = best.get();
+        while (candidate < current) {
+            if (best.compareAndSet(current, candidate))
+                return true;
+            current = best.get();
+        }
+        return false;
+    }
+
+    /**
+     * One search direction, expanded by a single thread.
+     */
+    private class Direction implements Runnable {
+
+        private final int dir;
+        private final State goal;
+        private final Heuristic heuristic;
+
+        // Owned by the direction's thread
+        private final NodeStore nodes;
+        private final StateTable stateHash = new StateTable();
+        private final BucketQueue fOpenHeap = new BucketQueue();
+        private final BucketQueue gOpenHeap = new BucketQueue();
+        private final BucketQueue prOpenHeap = new BucketQueue();
+        private int closedCount;
+        private final SearchMetrics metrics;
+
+        // Shortest path length this direction lowered U to, and its
+        // meeting state
+        private int meetLength = Integer.MAX_VALUE;
+        private State meetState;
+
+        // Read by the opposite direction: lowest g-value of every
+        // generated state, and lower bounds of the open set
+        private final ConcurrentStateTable depths = new ConcurrentStateTable();
+        private volatile int prMin;
+        private volatile int fMin;
+        private volatile int gMin;
+
+        private volatile Throwable failure;
+
+        /**
+         * @param dir        FWD or REV
+         * @param initial    Root state of the direction
+         * @param goal       Goal state of the direction
+         * @param heuristic  Heuristic used by the search
+         * @param metrics    Metrics filled in by the direction's thread
+         */
+        Direction(int dir, State initial, State goal, Heuristic heuristic, SearchMetrics metrics) {
+            this.dir = dir;
+            this.goal = goal;
+            this.heuristic = heuristic;
+            this.metrics = metrics;
+            this.nodes = new NodeStore(initial.getBoardSize());
+
+            // Add initial node to the open set, and publish its bounds
+            // before either thread starts
+            int n = nodes.add(initial, NodeStore.NO_PARENT, null, heuristic.h(initial, goal));
+            stateHash.put(initial, n);
+            depths.putMin(initial.getPacked(), 0);
+            addToOpen(n);
+            publishBounds();
+        }
+
+        @Override
+        public void run() {
+            try {
+                expand();
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                // Whichever way this direction ended, the other one has
+                // nothing left to wait for
+                done = true;
+            }
+        }
+
+        private void expand() {
+            Direction opposite = directions[1 - dir];
+
+            // While there are still elements in the open set
+            while (!done && !prOpenHeap.isEmpty()) {
+                publishBounds();
+
+                // stop condition: test U against bounds of both directions
+                int C = Math.min(prMin, opposite.prMin);
+                int U = (int) (best.get() >>> 32);
+                if (U <= Math.max(Math.max(C, fMin),
+                                  Math.max(opposite.fMin, gMin + opposite.gMin + 1)))
+                    return;
+
+                // choose n ∈ Open for which pr(n) = prmin and g(n) is minimum
+                int n = prOpenHeap.pop();
+                State s = nodes.getState(n);
+
+                // Move the node from the open to closed set, remove from heaps
+                nodes.setClosed(n, true);
+                closedCount++;
+                fOpenHeap.remove(n);
+                gOpenHeap.remove(n);
+                metrics.expanded(dir);
+                metrics.sizes(dir, prOpenHeap.size() + 1, closedCount);
+
+                for (State.Operator op : State.Operator.values()) {
+                    State newState = s.move(op);
+                    if (newState == null)
+                        continue;
+                    metrics.generated(dir);
+
+                    int newNode = stateHash.get(newState);
+                    if (newNode != StateTable.NOT_FOUND) {
+                        // test if cost is lower now
+                        if (nodes.getDepth(newNode) <= nodes.getDepth(n) + 1)
+                            continue;
+                        // reopen a closed node
+                        if (nodes.isClosed(newNode)) {
+                            nodes.setClosed(newNode, false);
+                            closedCount--;
+                            metrics.reopened(dir);
+                        }
+                        nodes.setDepth(newNode, (short) (nodes.getDepth(n) + 1));
+                        nodes.setParent(newNode, n);
+                        nodes.setOp(newNode, op);
+                        nodes.setHeuristic(newNode, (short) Math.max(nodes.getHeuristic(newNode), nodes.getHeuristic(n) - 1));
+                    } else {
+                        long t = metrics.heuristicStart();
+                        short h = heuristic.h(newState, s, nodes.getHeuristic(n), goal);
+                        metrics.heuristicEnd(t);
+                        newNode = nodes.add(newState, n, op, (short) Math.max(h, nodes.getHeuristic(n) - 1));
+                        stateHash.put(newState, newNode);
+                    }
+                    addToOpen(newNode);
+
+                    // Publish the child before looking for it in the
+                    // opposite direction, then U := min(U, g(c) + g'(c))
+                    int depth = nodes.getDepth(newNode);
+                    depths.putMin(newState.getPacked(), depth);
+                    int matchedDepth = opposite.depths.get(newState.getPacked());
+                    if (matchedDepth != StateTable.NOT_FOUND) {
+                        boolean improved = (dir == FWD) ? offer(depth, matchedDepth) : offer(matchedDepth, depth);
+                        metrics.met(improved);
+                        if (improved) {
+                            meetLength = depth + matchedDepth;
+                            meetState = newState;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Publish the lowest priority, f-score and depth in the open set.
+         */
+        private void publishBounds() {
+            prMin = prOpenHeap.peekPrimary();
+            fMin = fOpenHeap.peekPrimary();
+            gMin = gOpenHeap.peekPrimary();
+        }
+
+        /**
+         * @param n  Index of a node to add to the open set, or to move to
+         *           the buckets of its current keys
+         */
+        private void addToOpen(int n) {
+            fOpenHeap.update(n, nodes.getFScore(n));
+            gOpenHeap.update(n, nodes.getDepth(n));
+            prOpenHeap.update(n, nodes.getPriority(n), nodes.getDepth(n));
+        }
+    }
+}
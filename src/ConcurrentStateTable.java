@@ -0,0 +1,69 @@
+/**
+ * Thread-safe map from packed puzzle states to non-negative ints. The keys
+ * are spread over independently locked StateTable stripes, so threads
+ * working on different states rarely wait for each other.
+ */
+public class ConcurrentStateTable {
+
+    private static final int STRIPE_BITS = 6;
+
+    private final StateTable[] stripes = new StateTable[1 << STRIPE_BITS];
+
+    public ConcurrentStateTable() {
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new StateTable();
+    }
+
+    /**
+     * @param key  Packed puzzle state
+     * @return  Value stored for the state, or StateTable.NOT_FOUND
+     */
+    public int get(long key) {
+        StateTable stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * Store a value for a state unless a value at most as large is
+     * already stored.
+     *
+     * @param key    Packed puzzle state
+     * @param value  Non-negative value
+     * @return  Value stored for the state after the call
+     */
+    public int putMin(long key, int value) {
+        StateTable stripe = stripe(key);
+        synchronized (stripe) {
+            int stored = stripe.get(key);
+            if (stored != StateTable.NOT_FOUND && stored <= value)
+                return stored;
+            stripe.put(key, value);
+            return value;
+        }
+    }
+
+    /**
+     * @return  Number of states in the table
+     */
+    public int size() {
+        int size = 0;
+        for (StateTable stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @param key  Packed puzzle state
+     * @return  Stripe holding the state
+     */
+    private StateTable stripe(long key) {
+        // Use the high bits of the hash, StateTable probes with the low bits
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (hash >>> (64 - STRIPE_BITS))];
+    }
+}
@@ -1,6 +0,0 @@
-
-public class Config {
-	public static boolean LinearConflict;     
-	public static boolean f2fEndCondition;
-	public static boolean f2f;
-}
@@ -0,0 +1,246 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Optimal distance to the goal of every board of a small puzzle, found by a
+ * breadth-first search back from the goal and memory-mapped from a file.
+ * A board is solved without searching, by a greedy descent which moves to a
+ * neighbour one move closer to the goal until the goal is reached.
+ *
+ * Each board is stored as a nibble at its PermutationRank. A nibble holds
+ * the distance modulo 16: a move changes the distance by exactly one, so a
+ * neighbour is closer exactly when its nibble is one less, modulo 16.
+ *
+ * File layout: magic, board size, packed goal, then one nibble per rank.
+ */
+public class DistanceTable {
+
+    static final int MAGIC = 0x44535431;   // "DST1"
+
+    // Size of the header in bytes
+    private static final int HEADER = 16;
+
+    private static final State.Operator[] OPERATORS = State.Operator.values();
+
+    private final int boardSize;
+    private final State goal;
+    private final MappedByteBuffer buffer;
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the board
+     * @param goal       Goal state of the table
+     * @param buffer     Mapped file
+     */
+    private DistanceTable(int boardSize, State goal, MappedByteBuffer buffer) {
+        this.boardSize = boardSize;
+        this.goal = goal;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Distance table generator, for the standard goal (tile t at cell t-1,
+     * blank in the last cell).
+     *
+     * @param args Puzzle size and output file
+     */
+    public static void main(String args[]) {
+        if (args.length < 2) {
+            System.out.println("Usage: DistanceTable <size> <output file>");
+            System.exit(1);
+        }
+
+        int size = 0;
+        try {
+            size = Integer.parseInt(args[0]);
+        } catch (Exception e) {
+            System.out.println("Couldn't parse size");
+            System.exit(1);
+        }
+        if (size < 2 || size > RankedStateSet.MAX_BOARD_SIZE) {
+            System.out.println("Puzzle size must be between 2 and " + RankedStateSet.MAX_BOARD_SIZE);
+            System.exit(1);
+        }
+
+        try {
+            generate(State.standardGoal(size), args[1]);
+        } catch (IOException e) {
+            System.out.println("An error occurred while writing to output file");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param goal  Goal state
+     * @param file  Output file
+     * @throws IOException  If the file cannot be written
+     */
+    public static void generate(State goal, String file) throws IOException {
+        int boardSize = goal.getBoardSize();
+        if (boardSize > RankedStateSet.MAX_BOARD_SIZE)
+            throw new IllegalArgumentException("Board size " + boardSize + " is too large for a distance table");
+        byte[] distances = search(goal);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(boardSize);
+            out.writeLong(goal.getPacked());
+            for (int rank = 0; rank < distances.length; rank += 2) {
+                int low = distances[rank] & 0xF;
+                int high = (rank + 1 < distances.length) ? distances[rank + 1] & 0xF : 0;
+                out.writeByte(low | (high << 4));
+            }
+        }
+    }
+
+    /**
+     * Breadth-first search from the goal over the ranks of the boards.
+     *
+     * @param goal  Goal state
+     * @return  Distance of each board to the goal, indexed by rank
+     */
+    private static byte[] search(State goal) {
+        byte[] distances = new byte[(int) PermutationRank.states(goal.getBoardSize())];
+        Arrays.fill(distances, (byte) -1);
+        int[] queue = new int[distances.length];
+        int head = 0;
+        int tail = 0;
+
+        int root = (int) PermutationRank.rank(goal);
+        distances[root] = 0;
+        queue[tail++] = root;
+        while (head < tail) {
+            int rank = queue[head++];
+            State s = PermutationRank.unrank(rank, goal);
+            for (State.Operator op : OPERATORS) {
+                State child = s.move(op);
+                if (child == null)
+                    continue;
+                int childRank = (int) PermutationRank.rank(child);
+                if (distances[childRank] < 0) {
+                    distances[childRank] = (byte) (distances[rank] + 1);
+                    queue[tail++] = childRank;
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Memory-maps a distance table file.
+     *
+     * @param file  Path of a file written by generate
+     * @return  Distance table backed by the mapped file
+     * @throws IOException  If the file cannot be read or is not a distance
+     *                      table
+     */
+    public static DistanceTable load(String file) throws IOException {
+        Path path = Paths.get(file);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.limit() < HEADER || buffer.getInt(0) != MAGIC)
+            throw new IOException("'" + file + "' is not a distance table");
+        int boardSize = buffer.getInt(4);
+        if (boardSize < 2 || boardSize > RankedStateSet.MAX_BOARD_SIZE)
+            throw new IOException("'" + file + "' is truncated or corrupt");
+        if (HEADER + (PermutationRank.states(boardSize) + 1) / 2 != buffer.limit())
+            throw new IOException("'" + file + "' is truncated or corrupt");
+
+        long packed = buffer.getLong(8);
+        int blank = 0;
+        while (((packed >>> (blank << 2)) & 0xF) != 0)
+            blank++;
+        return new DistanceTable(boardSize, new State(boardSize, packed, blank), buffer);
+    }
+
+    /**
+     * @return  Number of rows (and columns) of the board
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * @return  Goal state of the table
+     */
+    public State getGoal() {
+        return goal;
+    }
+
+    /**
+     * Solve a board by greedy descent along decreasing distances.
+     *
+     * @param initial initial state
+     * @return the result, with the goal node which includes a back
+     *         pointer towards the initial state.
+     * @throws IllegalStateException  If the table has no descent from the
+     *                                 board to the goal
+     */
+    public SearchResult solve(State initial) {
+        if (initial.getBoardSize() != boardSize)
+            throw new IllegalArgumentException("Board size " + initial.getBoardSize() + " does not match the table");
+        if (!initial.isSolvable(goal))
+            return SearchResult.unsolvable("Unsolvable: the goal cannot be reached from the initial state\n");
+
+        // Operators from the initial state to the goal. No optimal path
+        // visits a board twice, so a longer descent is going round a cycle
+        // of wrong distances.
+        State.Operator[] path = new State.Operator[16];
+        long maxDepth = PermutationRank.states(boardSize) - 1;
+        int depth = 0;
+        int lookups = 1;
+        State s = initial;
+        int d = lookup(s);
+        while (!s.equals(goal)) {
+            if (depth > maxDepth)
+                throw new IllegalStateException("Distance table is corrupt: no descent to the goal within "
+                        + maxDepth + " moves");
+            int closer = (d - 1) & 0xF;
+            State previous = s;
+            for (State.Operator op : OPERATORS) {
+                State next = s.move(op);
+                if (next == null)
+                    continue;
+                lookups++;
+                if (lookup(next) == closer) {
+                    if (depth == path.length)
+                        path = Arrays.copyOf(path, 2*path.length);
+                    path[depth++] = op;
+                    s = next;
+                    d = closer;
+                    break;
+                }
+            }
+            // Every board but the goal has a neighbour one move closer, so
+            // the table holds wrong distances
+            if (s == previous)
+                throw new IllegalStateException("Distance table is corrupt: no move leads closer to the goal after "
+                        + depth + " moves");
+        }
+
+        // The distance of each board on the path is the number of moves left
+        return SearchResult.solved("Found path: depth:" + depth + "\n"
+                + "Nodes Generated: " + lookups + " (table lookups)\n",
+                NodeStore.path(initial, Arrays.copyOf(path, depth), null, goal));
+    }
+
+    /**
+     * @param s  Board reachable from the goal
+     * @return  Distance of the board to the goal, modulo 16
+     */
+    private int lookup(State s) {
+        long rank = PermutationRank.rank(s);
+        byte b = buffer.get((int) (HEADER + (rank >>> 1)));
+        return (b >>> ((int) (rank & 1) << 2)) & 0xF;
+    }
+}
@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A* with delayed duplicate detection, for searches whose open and closed
+ * sets don't fit in memory. States are kept on disk in one file per
+ * (g, h) bucket, and the buckets are expanded in order of increasing f and
+ * then increasing g. Children are appended to the files of their buckets
+ * without checking for duplicates. Only when a bucket is about to be
+ * expanded is it sorted, and its duplicates and the states already
+ * expanded are merged out of it. The sorted bucket is kept as a closed
+ * layer.
+ *
+ * Moves are undirected and cost 1, and with a consistent heuristic every
+ * expanded state has its shortest depth, so a duplicate of a state in bucket
+ * (g, h) can only have been expanded at depth g-1 or g-2 with the same
+ * heuristic. Only those two closed layers are merged against each bucket.
+ *
+ * A child's heuristic is raised to its parent's minus one (pathmax), so f
+ * never decreases along a path and a bucket is never refilled once it has
+ * been expanded, even with an inconsistent heuristic such as a pattern
+ * database. A duplicate the merge misses is then only expanded again.
+ */
+public class ExternalAStarSearch {
+
+    // Number of states sorted in memory at once
+    private static final int RUN_SIZE = 1 << 22;
+
+    /**
+     * Bucket of the open set not yet expanded.
+     */
+    private static final class Bucket {
+        private final int g;
+        private final int h;
+        private final SpillFile file;
+        private final SpillFile.Appender appender;
+
+        /**
+         * @param g     Depth of the states
+         * @param h     Heuristic of the states
+         * @param file  File holding the states
+         * @throws IOException  If the file cannot be opened
+         */
+        Bucket(int g, int h, SpillFile file) throws IOException {
+            this.g = g;
+            this.h = h;
+            this.file = file;
+            this.appender = file.appender();
+        }
+    }
+
+    /**
+     * Solve n-puzzle using external-memory A* search
+     *
+     * @param initial initial state
+     * @param goal    goal state
+     * @param config  solver settings
+     * @return the result, with the goal node which includes a back
+     *         pointer towards the initial state.
+     */
+    public static SearchResult ExternalAStarSolve(State initial, State goal, SolverConfig config) {
+        return ExternalAStarSolve(initial, goal, config, SearchMetrics.of("external A*", config));
+    }
+
+    /**
+     * Solve n-puzzle using external-memory A* search
+     *
+     * @param initial initial state
+     * @param goal    goal state
+     * @param config  solver settings
+     * @param metrics metrics filled in during the search
+     * @return the result, with the goal node which includes a back
+     *         pointer towards the initial state.
+     */
+    public static SearchResult ExternalAStarSolve(State initial, State goal, SolverConfig config, SearchMetrics metrics) {
+        Path directory = null;
+        try {
+            Path parent = (config.getSpillDirectory() != null)
+                    ? config.getSpillDirectory()
+                    : Paths.get(System.getProperty("java.io.tmpdir"));
+            directory = Files.createTempDirectory(parent, "npuzzle-spill");
+            return search(initial, goal, config.getHeuristic(), directory, metrics);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (directory != null)
+                deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * @param initial    Initial state
+     * @param goal       Goal state
+     * @param heuristic  Heuristic used by the search
+     * @param directory  Directory for the bucket files
+     * @param metrics    Metrics filled in during the search
+     * @return  Result of the search
+     * @throws IOException  If a bucket file cannot be read or written
+     */
+    private static SearchResult search(State initial, State goal, Heuristic heuristic, Path directory,
+                                       SearchMetrics metrics) throws IOException {
+        final int FWD = SearchMetrics.FWD;
+        int boardSize = initial.getBoardSize();
+        long goalPacked = goal.getPacked();
+
+        // Open buckets by f and then g, and closed layers by (g, h)
+        TreeMap<Long, Bucket> open = new TreeMap<Long, Bucket>();
+        Map<Long, SpillFile> closed = new HashMap<Long, SpillFile>();
+        long openCount = 0;
+        long closedCount = 0;
+        long generated = 1;
+
+        Bucket root = openBucket(open, directory, 0, heuristic.h(initial, goal));
+        root.appender.append(initial.getPacked());
+        openCount++;
+
+        try {
+            while (!open.isEmpty()) {
+                if (Thread.currentThread().isInterrupted())
+                    return SearchResult.noSolution("Interrupted\n");
+
+                Bucket bucket = open.pollFirstEntry().getValue();
+                bucket.appender.close();
+                openCount -= bucket.file.count();
+
+                // Merge out the duplicates and the states expanded before
+                SpillFile layer = new SpillFile(directory.resolve("closed-" + bucket.g + "-" + bucket.h));
+                SpillFile.sortUnique(bucket.file,
+                        Arrays.asList(closed.get(key(bucket.g - 1, bucket.h)), closed.get(key(bucket.g - 2, bucket.h))),
+                        layer, RUN_SIZE);
+                closed.put(key(bucket.g, bucket.h), layer);
+
+                long left = layer.count();
+                try (SpillFile.Cursor cursor = layer.cursor()) {
+                    while (cursor.hasNext()) {
+                        long packed = cursor.next();
+                        left--;
+                        if (packed == goalPacked) {
+                            metrics.setSolutionLength(bucket.g);
+                            return SearchResult.solved("Found path: depth:" + bucket.g + "\n"
+                                    + "Nodes Generated: " + generated + " (" + closedCount + " expanded/"
+                                    + (closed.size() + open.size()) + " buckets)\n",
+                                    toNode(initial, goal, heuristic, closed, bucket.g));
+                        }
+
+                        State s = toState(boardSize, packed);
+                        closedCount++;
+                        metrics.expanded(FWD);
+                        metrics.sizes(FWD, (int) Math.min(Integer.MAX_VALUE, openCount + left),
+                                (int) Math.min(Integer.MAX_VALUE, closedCount));
+
+                        // Append the children to their buckets, duplicates
+                        // included
+                        for (State.Operator op : State.Operator.values()) {
+                            State newState = s.move(op);
+                            if (newState == null)
+                                continue;
+                            metrics.generated(FWD);
+                            generated++;
+
+                            long t = metrics.heuristicStart();
+                            short h = (short) Math.max(heuristic.h(newState, s, (short) bucket.h, goal), bucket.h - 1);
+                            metrics.heuristicEnd(t);
+                            Bucket child = open.get(key(bucket.g + 1, h));
+                            if (child == null)
+                                child = openBucket(open, directory, bucket.g + 1, h);
+                            child.appender.append(newState.getPacked());
+                            openCount++;
+                        }
+                    }
+                }
+            }
+        } finally {
+            // Buckets left open when the goal was found
+            for (Bucket bucket : open.values())
+                bucket.appender.close();
+        }
+        return SearchResult.noSolution("");
+    }
+
+    /**
+     * @param g  Depth
+     * @param h  Heuristic
+     * @return  Key of the bucket, ordering buckets by f and then g
+     */
+    private static long key(int g, int h) {
+        return ((long) (g + h) << 32) | (g & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param open       Open buckets
+     * @param directory  Directory for the bucket files
+     * @param g          Depth of the states
+     * @param h          Heuristic of the states
+     * @return  New empty bucket, added to the open buckets
+     * @throws IOException  If the file cannot be created
+     */
+    private static Bucket openBucket(TreeMap<Long, Bucket> open, Path directory, int g, int h) throws IOException {
+        Bucket bucket = new Bucket(g, h, new SpillFile(directory.resolve("open-" + g + "-" + h)));
+        open.put(key(g, h), bucket);
+        return bucket;
+    }
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the board
+     * @param packed     Packed game board
+     * @return  State of the board
+     */
+    private static State toState(int boardSize, long packed) {
+        int blank = 0;
+        while (((packed >>> (blank << 2)) & 0xF) != 0)
+            blank++;
+        return new State(boardSize, packed, blank);
+    }
+
+    /**
+     * Walk back from the goal through the closed layers, at each depth
+     * moving to a neighbour that was expanded one move closer to the
+     * initial state. Pathmax may have raised the neighbour's heuristic, so
+     * every layer of the depth is looked in.
+     *
+     * @param initial    Initial state
+     * @param goal       Goal state
+     * @param heuristic  Heuristic used by the search
+     * @param closed     Closed layers by (g, h)
+     * @param depth      Solution depth
+     * @return  Goal node of the found path, with back pointers towards the
+     *          initial state
+     * @throws IOException  If a closed layer cannot be read
+     */
+    private static Node toNode(State initial, State goal, Heuristic heuristic, Map<Long, SpillFile> closed,
+                               int depth) throws IOException {
+        // Operators from the goal back to the initial state
+        List<State.Operator> path = new ArrayList<State.Operator>();
+        State s = goal;
+        for (int g = depth; g > 0; g--) {
+            State previous = null;
+            for (State.Operator op : State.Operator.values()) {
+                State neighbour = s.move(op);
+                if (neighbour == null)
+                    continue;
+                for (Map.Entry<Long, SpillFile> layer : closed.entrySet()) {
+                    if ((int) (long) layer.getKey() == g - 1 && layer.getValue().contains(neighbour.getPacked())) {
+                        previous = neighbour;
+                        break;
+                    }
+                }
+                if (previous != null) {
+                    path.add(op.reverse());
+                    break;
+                }
+            }
+            assert previous != null;
+            s = previous;
+        }
+        assert s.equals(initial);
+
+        State.Operator[] ops = new State.Operator[depth];
+        for (int g = 0; g < depth; g++)
+            ops[g] = path.get(depth - g - 1);
+        return NodeStore.path(initial, ops, heuristic, goal);
+    }
+
+    /**
+     * Delete the bucket files and their directory, ignoring failures.
+     *
+     * @param directory  Directory for the bucket files
+     */
+    private static void deleteDirectory(Path directory) {
+        try {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files)
+                    Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            System.out.println("Couldn't delete '" + directory + "': " + e.getMessage());
+        }
+    }
+}
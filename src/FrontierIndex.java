@@ -0,0 +1,208 @@
+/**
+ * Index over the open set of one search direction for evaluating the
+ * front-to-front heuristic of states generated by the opposite direction,
+ * min over m in Open of h(n, m) + g(m).
+ *
+ * Open nodes are grouped by depth g and by their Manhattan distance d to a
+ * fixed pivot state (the root of the direction). Since Manhattan distance is
+ * a metric and a lower bound of h, h(n, m) >= |MD(n, pivot) - d|, so a whole
+ * group can be skipped once g + |MD(n, pivot) - d| reaches the best value
+ * found so far. The remaining nodes are first checked against their exact
+ * Manhattan distance, read from a per-query table, and h is only computed
+ * for nodes that can still improve the minimum. The result is the same as
+ * scanning the whole open set.
+ *
+ * The index also evaluates the front-to-front heuristic with end condition,
+ * which walks the open set in f-score order and stops at the first node
+ * whose f-score exceeds the bound; that mode only needs the f-score queue of
+ * the direction, so nodes need not be added to the groups.
+ */
+public class FrontierIndex {
+
+    private final NodeStore nodes;
+    private final State pivot;
+
+    // Open nodes keyed by (depth, Manhattan distance to pivot)
+    private final BucketQueue groups = new BucketQueue();
+
+    // Goal positions of the open node currently being evaluated
+    private final Position[] goalPos;
+
+    // distances[tile*cells+cell] is the Manhattan distance of a tile at
+    // cell from its position in the queried state
+    private final int[] distances;
+
+    private final Heuristic heuristic;
+
+    // True if h is the Manhattan distance, so no further check is needed
+    // after the Manhattan prefilter
+    private final boolean manhattanOnly;
+
+    /**
+     * @param nodes      Nodes of the indexed direction
+     * @param pivot      Root state of the indexed direction
+     * @param heuristic  Heuristic between pairs of states
+     */
+    public FrontierIndex(NodeStore nodes, State pivot, Heuristic heuristic) {
+        this.nodes = nodes;
+        this.pivot = pivot;
+        this.goalPos = State.newPositions(pivot.getBoardSize());
+        int cells = pivot.getBoardSize()*pivot.getBoardSize();
+        this.distances = new int[cells*cells];
+        this.heuristic = heuristic;
+        this.manhattanOnly = heuristic.getClass() == ManhattanDistance.class;
+    }
+
+    /**
+     * Add an open node, or regroup it after its depth changed.
+     *
+     * @param n  Node index
+     */
+    public void add(int n) {
+        int distance = groups.contains(n) ? groups.secondaryKey(n)
+                                          : nodes.getState(n).manhattanDistance(pivot);
+        groups.update(n, nodes.getDepth(n), distance);
+    }
+
+    /**
+     * @param n  Index of a node leaving the open set
+     */
+    public void remove(int n) {
+        groups.remove(n);
+    }
+
+    /**
+     * @param s  State generated by the opposite direction
+     * @return  Minimal h(s, m) + g(m) over the open nodes m, or
+     *          Integer.MAX_VALUE if the open set is empty
+     */
+    public int h_f2f(State s) {
+        int min = Integer.MAX_VALUE;
+        int distance = s.manhattanDistance(pivot);
+        prepare(s);
+
+        // Visit the depths in increasing order; h >= 0, so no group at
+        // depth g can improve on min once g >= min
+        for (int g = 0; g < groups.primaryLimit() && g < min; g++) {
+            if (groups.count(g) == 0)
+                continue;
+            int limit = groups.secondaryLimit(g);
+
+            // Visit the distances moving away from the distance of s, so
+            // the lower bound g + k only grows
+            for (int k = 0; g + k < min; k++) {
+                int below = distance - k;
+                int above = distance + k;
+                if (below < 0 && above >= limit)
+                    break;
+                min = visit(s, groups.bucketHead(g, below), g, min);
+                if (k > 0)
+                    min = visit(s, groups.bucketHead(g, above), g, min);
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Walks the open set in f-score order without copying it, and stops at
+     * the first node whose f-score is higher than the upper bound.
+     *
+     * @param s            State generated by the opposite direction
+     * @param openList     Open set of the indexed direction by f-score
+     * @param parentDepth  Depth of the node s was generated from
+     * @return  Minimal h(s, m) + g(m) over the visited open nodes m, or
+     *          Integer.MAX_VALUE if the open set is empty
+     */
+    public int h_f2fEndCondition(State s, BucketQueue openList, int parentDepth) {
+        int min = Integer.MAX_VALUE;
+        prepare(s);
+        for (int e = openList.first(); e != BucketQueue.EMPTY; e = openList.next(e)) {
+            min = evaluate(s, e, min);
+            // reached a node whose f score is higher than the upper bound
+            if (openList.primaryKey(e) > min + parentDepth + 1)
+                return min;
+        }
+        return min;
+    }
+
+    /**
+     * @param s  State to be evaluated against open nodes
+     */
+    private void prepare(State s) {
+        int boardSize = pivot.getBoardSize();
+        int cells = boardSize*boardSize;
+        for (int row = 0; row < boardSize; row++) {
+            for (int col = 0; col < boardSize; col++) {
+                int tile = s.getTile(row, col);
+                if (tile == 0)
+                    continue;
+                for (int cell = 0; cell < cells; cell++)
+                    distances[tile*cells + cell] = Math.abs(cell / boardSize - row) + Math.abs(cell % boardSize - col);
+            }
+        }
+    }
+
+    /**
+     * @param s      State generated by the opposite direction
+     * @param first  First node of a group
+     * @param g      Depth of the nodes in the group
+     * @param min    Minimal h(s, m) + g(m) found so far
+     * @return  Minimal h(s, m) + g(m) including the nodes of the group
+     */
+    private int visit(State s, int first, int g, int min) {
+        for (int m = first; m != BucketQueue.EMPTY; m = groups.nextInBucket(m))
+            min = evaluate(s, m, min);
+        return min;
+    }
+
+    /**
+     * @param s    State prepared for evaluation
+     * @param m    Open node
+     * @param min  Minimal h(s, m) + g(m) found so far
+     * @return  Minimum of min and h(s, m) + g(m)
+     */
+    private int evaluate(State s, int m, int min) {
+        int boardSize = pivot.getBoardSize();
+        int cells = boardSize*boardSize;
+        int g = nodes.getDepth(m);
+        if (s.isWide())
+            return evaluateWide(s, m, g, min);
+        long packed = nodes.getPacked(m);
+        int manhattan = 0;
+        for (int cell = 0; cell < cells; cell++)
+            manhattan += distances[(int) ((packed >>> (cell << 2)) & 0xF)*cells + cell];
+
+        // h is never below the Manhattan distance
+        if (manhattan + g >= min)
+            return min;
+        if (manhattanOnly)
+            return manhattan + g;
+        State.fillCorrectPositions(packed, boardSize, goalPos);
+        return Math.min(min, heuristic.h(boardSize, s.getPacked(), goalPos) + g);
+    }
+
+    /**
+     * evaluate for boards larger than 4x4, which are read from the node
+     * store as States.
+     *
+     * @param s    State prepared for evaluation
+     * @param m    Open node
+     * @param g    Depth of the open node
+     * @param min  Minimal h(s, m) + g(m) found so far
+     * @return  Minimum of min and h(s, m) + g(m)
+     */
+    private int evaluateWide(State s, int m, int g, int min) {
+        int cells = pivot.getBoardSize()*pivot.getBoardSize();
+        State open = nodes.getState(m);
+        int manhattan = 0;
+        for (int cell = 0; cell < cells; cell++)
+            manhattan += distances[open.getTile(cell)*cells + cell];
+
+        if (manhattan + g >= min)
+            return min;
+        if (manhattanOnly)
+            return manhattan + g;
+        State.fillCorrectPositions(open, goalPos);
+        return Math.min(min, heuristic.h(s, goalPos) + g);
+    }
+}
@@ -0,0 +1,364 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hash distributed A* (HDA*). Every state is owned by the worker thread its
+ * hash maps to, and only the owner keeps it in its open and closed sets. A
+ * worker expanding a node sends each child to the child's owner. Children
+ * are collected in a batch per destination and the batch is posted to a
+ * lock-free mailbox.
+ *
+ * The best solution cost U found so far is shared. A worker is idle once it
+ * has no open node with f below U. The search ends when every batch sent
+ * has been processed by a worker that afterwards went idle. For that, a
+ * shared count of outstanding batches is raised when a batch is posted. A
+ * worker lowers it by the number of batches it processed only when it goes
+ * idle, and by then it has already posted every batch those produced. The
+ * count therefore reaches zero only when no work is left anywhere, and U
+ * is then optimal.
+ *
+ * Each worker fills in metrics of its own, which are added up once every
+ * worker has stopped.
+ */
+public class HDAStarSearch {
+
+    // Messages per batch
+    private static final int BATCH_SIZE = 64;
+
+    // Expansions between flushes of partly filled batches
+    private static final int FLUSH_INTERVAL = 256;
+
+    private static final long IDLE_WAIT_NANOS = 20_000;
+
+    private static final State.Operator[] OPERATORS = State.Operator.values();
+
+    private final int boardSize;
+    private final State goal;
+    private final Heuristic heuristic;
+    private final Worker[] workers;
+
+    // Best solution cost found so far
+    private final AtomicInteger U = new AtomicInteger(Integer.MAX_VALUE);
+
+    // Batches posted and not yet accounted for by an idle worker
+    private final AtomicLong outstanding = new AtomicLong();
+
+    private volatile boolean done;
+
+    /**
+     * @param initial  Initial state
+     * @param goal     Goal state
+     * @param config   Solver settings
+     * @param metrics  Metrics of the search, from which the workers' are made
+     */
+    private HDAStarSearch(State initial, State goal, SolverConfig config, SearchMetrics metrics) {
+        this.boardSize = initial.getBoardSize();
+        this.goal = goal;
+        this.heuristic = config.getHeuristic();
+        this.workers = new Worker[config.getThreads()];
+        for (int i = 0; i < workers.length; i++)
+            workers[i] = new Worker(i, metrics.forThread());
+
+        // The root counts as a batch processed by its owner
+        Worker owner = workers[owner(initial.getPacked())];
+        outstanding.set(1);
+        owner.processed = 1;
+        owner.receive(initial.getPacked(), initial.getBlank(), 0, heuristic.h(initial, goal), null);
+    }
+
+    /**
+     * Solve n-puzzle using hash distributed A* on config.getThreads()
+     * worker threads
+     *
+     * @param initial initial state
+     * @param goal    goal state
+     * @param config  solver settings
+     * @return the result, with the goal node which includes a back
+     *         pointer towards the initial state.
+     */
+    public static SearchResult HDAStarSolve(State initial, State goal, SolverConfig config) {
+        return HDAStarSolve(initial, goal, config, SearchMetrics.of("HDA*", config));
+    }
+
+    /**
+     * Solve n-puzzle using hash distributed A* on config.getThreads()
+     * worker threads
+     *
+     * @param initial initial state
+     * @param goal    goal state
+     * @param config  solver settings
+     * @param metrics metrics filled in during the search
+     * @return the result, with the goal node which includes a back
+     *         pointer towards the initial state.
+     */
+    public static SearchResult HDAStarSolve(State initial, State goal, SolverConfig config, SearchMetrics metrics) {
+        HDAStarSearch search = new HDAStarSearch(initial, goal, config, metrics);
+        Thread[] threads = new Thread[search.workers.length];
+        for (int i = 1; i < threads.length; i++) {
+            threads[i] = new Thread(search.workers[i], "HDA* worker " + i);
+            threads[i].start();
+        }
+        search.workers[0].run();
+        try {
+            for (int i = 1; i < threads.length; i++)
+                threads[i].join();
+        } catch (InterruptedException e) {
+            search.done = true;
+            Thread.currentThread().interrupt();
+            return SearchResult.noSolution("Interrupted\n");
+        }
+        for (Worker w : search.workers) {
+            if (w.failure != null)
+                throw new RuntimeException("HDA* worker " + w.id + " failed", w.failure);
+            metrics.add(w.metrics);
+        }
+
+        int depth = search.U.get();
+        if (depth == Integer.MAX_VALUE)
+            return SearchResult.noSolution("");
+
+        long generated = 0;
+        long expanded = 0;
+        long[] perWorker = new long[search.workers.length];
+        for (Worker w : search.workers) {
+            generated += w.nodes.size();
+            expanded += w.expanded;
+            perWorker[w.id] = w.expanded;
+        }
+        return SearchResult.solved("Found path: depth:" + depth + "\n"
+                + "Nodes Generated: " + generated
+                + " (" + expanded + " expanded by " + perWorker.length + " workers: " + Arrays.toString(perWorker) + ")\n",
+                search.toNode(initial, depth));
+    }
+
+    /**
+     * @param packed  Packed puzzle state
+     * @return  Index of the worker owning the state
+     */
+    private int owner(long packed) {
+        // Use other hash bits than the StateTable of the owner
+        long hash = packed * 0x9E3779B97F4A7C15L;
+        return (int) ((hash >>> 40) % workers.length);
+    }
+
+    /**
+     * Rebuild the path to the goal by stepping back with the reverse of the
+     * operator stored for each state, looking each state up at its owner.
+     * No worker runs anymore, so their tables can be read directly.
+     *
+     * @param initial  Initial state
+     * @param depth    Solution depth
+     * @return  Goal node of the found path, with back pointers towards the
+     *          initial state
+     */
+    private Node toNode(State initial, int depth) {
+        State.Operator[] path = new State.Operator[depth];
+        State s = goal;
+        for (int g = depth; g > 0; g--) {
+            Worker w = workers[owner(s.getPacked())];
+            State.Operator op = w.nodes.getOp(w.stateHash.get(s));
+            path[g - 1] = op;
+            s = s.move(op.reverse());
+        }
+        assert s.equals(initial);
+        return NodeStore.path(initial, path, heuristic, goal);
+    }
+
+    /**
+     * Worker thread owning the states which hash to it.
+     */
+    private class Worker implements Runnable {
+
+        private final int id;
+
+        // Owned by the worker's thread. Nodes have no parent index, as the
+        // parent state may belong to another worker; the operator that led
+        // to a node is enough to step back along the path.
+        private final NodeStore nodes = new NodeStore(boardSize);
+        private final StateTable stateHash = new StateTable();
+        private final BucketQueue openHeap = new BucketQueue();
+
+        // Batches posted to this worker. A message is two longs: the packed
+        // state, and its depth, heuristic, operator and blank index.
+        private final ConcurrentLinkedQueue<long[]> mailbox = new ConcurrentLinkedQueue<long[]>();
+
+        // Batches being filled for each destination
+        private final long[][] outgoing;
+        private final int[] outgoingSize;
+
+        // Batches processed since the worker was last idle
+        private long processed;
+
+        private long expanded;
+        private final SearchMetrics metrics;
+        private volatile Throwable failure;
+
+        /**
+         * @param id       Index of the worker
+         * @param metrics  Metrics filled in by the worker's thread
+         */
+        Worker(int id, SearchMetrics metrics) {
+            this.id = id;
+            this.metrics = metrics;
+            this.outgoing = new long[workers.length][2*BATCH_SIZE];
+            this.outgoingSize = new int[workers.length];
+        }
+
+        @Override
+        public void run() {
+            try {
+                work();
+            } catch (Throwable t) {
+                failure = t;
+                done = true;
+            }
+        }
+
+        private void work() {
+            int sinceFlush = 0;
+            while (!done) {
+                boolean received = drainMailbox();
+
+                if (openHeap.peekPrimary() < U.get()) {
+                    expand(openHeap.pop());
+                    if (++sinceFlush == FLUSH_INTERVAL) {
+                        flushAll();
+                        sinceFlush = 0;
+                    }
+                    continue;
+                }
+
+                // Nothing left below U: post everything produced, then
+                // account for the batches processed since last idle
+                flushAll();
+                sinceFlush = 0;
+                if (processed > 0) {
+                    long left = outstanding.addAndGet(-processed);
+                    processed = 0;
+                    if (left == 0) {
+                        done = true;
+                        break;
+                    }
+                }
+                if (!received)
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS);
+            }
+        }
+
+        /**
+         * @return  True if any batch was processed
+         */
+        private boolean drainMailbox() {
+            boolean received = false;
+            long[] batch;
+            while ((batch = mailbox.poll()) != null) {
+                for (int i = 0; i < batch.length; i += 2) {
+                    long info = batch[i + 1];
+                    int op = (int) (info >>> 32) & 0xFF;
+                    receive(batch[i], (int) (info >>> 40) & 0xFF, (int) info & 0xFFFF, (int) (info >>> 16) & 0xFFFF,
+                            (op == 0xFF) ? null : OPERATORS[op]);
+                }
+                processed++;
+                received = true;
+            }
+            return received;
+        }
+
+        /**
+         * Add a state reached with the given depth to the open set, unless
+         * it was already reached at most as deep.
+         *
+         * @param packed  Packed state
+         * @param blank   Index of the blank tile
+         * @param g       Depth of the state
+         * @param h       Heuristic of the state
+         * @param op      Operator that led to the state, or null for the root
+         */
+        private void receive(long packed, int blank, int g, int h, State.Operator op) {
+            if (g + h >= U.get())
+                return;
+
+            int n = stateHash.get(packed);
+            if (n == StateTable.NOT_FOUND) {
+                n = nodes.add(new State(boardSize, packed, blank), NodeStore.NO_PARENT, op, (short) h);
+                stateHash.put(packed, n);
+            } else {
+                if (nodes.getDepth(n) <= g)
+                    return;
+                nodes.setClosed(n, false);
+                nodes.setOp(n, op);
+            }
+            nodes.setDepth(n, (short) g);
+
+            if (packed == goal.getPacked()) {
+                metrics.met(g < U.getAndAccumulate(g, Math::min));
+                openHeap.remove(n);
+                return;
+            }
+            openHeap.update(n, nodes.getFScore(n));
+        }
+
+        /**
+         * @param n  Open node to expand
+         */
+        private void expand(int n) {
+            nodes.setClosed(n, true);
+            expanded++;
+            metrics.expanded(SearchMetrics.FWD);
+            metrics.sizes(SearchMetrics.FWD, openHeap.size() + 1, (int) expanded);
+            State s = nodes.getState(n);
+            short h = nodes.getHeuristic(n);
+            int g = nodes.getDepth(n) + 1;
+            State.Operator last = nodes.getOp(n);
+
+            for (State.Operator op : OPERATORS) {
+                // Don't undo the move that led here
+                if (last != null && op == last.reverse())
+                    continue;
+                State child = s.move(op);
+                if (child == null)
+                    continue;
+
+                metrics.generated(SearchMetrics.FWD);
+                long t = metrics.heuristicStart();
+                int childH = heuristic.h(child, s, h, goal);
+                metrics.heuristicEnd(t);
+                int owner = owner(child.getPacked());
+                if (owner == id) {
+                    receive(child.getPacked(), child.getBlank(), g, childH, op);
+                } else if (g + childH < U.get()) {
+                    long[] batch = outgoing[owner];
+                    int size = outgoingSize[owner];
+                    batch[size] = child.getPacked();
+                    batch[size + 1] = g | ((long) childH << 16) | ((long) op.ordinal() << 32) | ((long) child.getBlank() << 40);
+                    outgoingSize[owner] = size + 2;
+                    if (size + 2 == batch.length)
+                        flush(owner);
+                }
+            }
+        }
+
+        private void flushAll() {
+            for (int w = 0; w < workers.length; w++)
+                flush(w);
+        }
+
+        /**
+         * Post the batch being filled for a worker to its mailbox.
+         *
+         * @param w  Destination worker
+         */
+        private void flush(int w) {
+            int size = outgoingSize[w];
+            if (size == 0)
+                return;
+            // Count the batch before it can be processed
+            outstanding.incrementAndGet();
+            workers[w].mailbox.add(Arrays.copyOf(outgoing[w], size));
+            outgoingSize[w] = 0;
+        }
+    }
+}
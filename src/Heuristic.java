@@ -0,0 +1,88 @@
+/**
+ * Admissible estimate of the number of moves between a board and a goal
+ * board. A solver is given one Heuristic in its SolverConfig and uses it for
+ * the whole search.
+ *
+ * Boards are packed as by {@link State#getPacked()}, so searches which
+ * change a board in place can evaluate it without creating a State. Boards
+ * larger than 4x4 don't fit in a long, and are evaluated as States.
+ */
+public interface Heuristic {
+
+    /**
+     * @param boardSize   Number of rows (and columns) of the board
+     * @param packed      Packed game board
+     * @param correctPos  Position of each tile in the goal state
+     * @return  Heuristic distance from goal state
+     */
+    int h(int boardSize, long packed, Position[] correctPos);
+
+    /**
+     * Heuristic of a board one move away from a parent board whose
+     * heuristic is known. Implementations may recompute only what the move
+     * changed; when assertions are enabled they check the result against
+     * the full heuristic.
+     *
+     * @param boardSize    Number of rows (and columns) of the board
+     * @param packed       Packed game board
+     * @param blank        Cell of the blank, where the moved tile was on
+     *                     the parent board
+     * @param parent       Packed parent board
+     * @param parentBlank  Cell of the blank on the parent board, where the
+     *                     moved tile is now
+     * @param parentH      Heuristic of the parent board
+     * @param correctPos   Position of each tile in the goal state
+     * @return  Heuristic distance from goal state
+     */
+    default int h(int boardSize, long packed, int blank, long parent, int parentBlank, int parentH, Position[] correctPos) {
+        return h(boardSize, packed, correctPos);
+    }
+
+    /**
+     * Heuristic of a board larger than 4x4.
+     *
+     * @param s           State to evaluate
+     * @param correctPos  Position of each tile in the goal state
+     * @return  Heuristic distance from goal state
+     */
+    int h(State s, Position[] correctPos);
+
+    /**
+     * Heuristic of a board larger than 4x4 one move away from a parent
+     * board whose heuristic is known.
+     *
+     * @param s           State to evaluate
+     * @param parent      State s was reached from by a single move
+     * @param parentH     Heuristic of the parent state
+     * @param correctPos  Position of each tile in the goal state
+     * @return  Heuristic distance from goal state
+     */
+    default int h(State s, State parent, int parentH, Position[] correctPos) {
+        return h(s, correctPos);
+    }
+
+    /**
+     * @param s     State to evaluate
+     * @param goal  Goal state
+     * @return  Heuristic distance from goal state
+     */
+    default short h(State s, State goal) {
+        if (s.isWide())
+            return (short) h(s, s.getCorrectPositions(goal));
+        return (short) h(s.getBoardSize(), s.getPacked(), s.getCorrectPositions(goal));
+    }
+
+    /**
+     * @param s        State to evaluate
+     * @param parent   State s was reached from by a single move
+     * @param parentH  Heuristic of the parent state
+     * @param goal     Goal state
+     * @return  Heuristic distance from goal state
+     */
+    default short h(State s, State parent, short parentH, State goal) {
+        if (s.isWide())
+            return (short) h(s, parent, parentH, s.getCorrectPositions(goal));
+        return (short) h(s.getBoardSize(), s.getPacked(), s.getBlank(),
+                         parent.getPacked(), parent.getBlank(), parentH, s.getCorrectPositions(goal));
+    }
+}
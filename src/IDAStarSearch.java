@@ -0,0 +1,200 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Iterative deepening A*. Each iteration is a depth-first search bounded by
+ * f = g + h on a single board which is changed in place by making and
+ * unmaking moves, so the memory used is proportional to the solution depth
+ * and no state is allocated per expanded node.
+ */
+public class IDAStarSearch {
+
+    // Returned by search when the goal was reached
+    static final int FOUND = -1;
+
+    // Operator used to reach the root
+    static final int NO_OP = -1;
+
+    private static final State.Operator[] OPERATORS = State.Operator.values();
+
+    private final int boardSize;
+    private final long goal;
+    private final Position[] correctPos;
+
+    private final Heuristic heuristic;
+
+    // Board being searched, changed in place
+    private long packed;
+    private int blank;
+
+    // Operator ordinals from the root to the current board
+    private byte[] path = new byte[128];
+
+    // Set by another search to abandon this one, or null
+    private final AtomicBoolean stop;
+
+    // Filled in by the thread running the search
+    private final SearchMetrics metrics;
+
+    /**
+     * @param initial    Board to search from
+     * @param goal       Goal state
+     * @param heuristic  Heuristic used by the search
+     * @param stop       Flag which ends the search once set, or null
+     * @param metrics    Metrics filled in during the search
+     */
+    IDAStarSearch(State initial, State goal, Heuristic heuristic, AtomicBoolean stop, SearchMetrics metrics) {
+        this.boardSize = initial.getBoardSize();
+        this.heuristic = heuristic;
+        this.goal = goal.getPacked();
+        this.correctPos = initial.getCorrectPositions(goal);
+        this.packed = initial.getPacked();
+        this.blank = initial.getBlank();
+        this.stop = stop;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Solve n-puzzle using IDA* search Algorithm
+     *
+     * @param initial initial state
+     * @param goal    goal state
+     * @param config  solver settings
+     * @return the result, with the goal node which includes a back
+     *         pointer towards the initial state.
+     */
+    public static SearchResult IDAStarSolve(State initial, State goal, SolverConfig config) {
+        return IDAStarSolve(initial, goal, config, SearchMetrics.of("IDA*", config));
+    }
+
+    /**
+     * Solve n-puzzle using IDA* search Algorithm
+     *
+     * @param initial initial state
+     * @param goal    goal state
+     * @param config  solver settings
+     * @param metrics metrics filled in during the search
+     * @return the result, with the goal node which includes a back
+     *         pointer towards the initial state.
+     */
+    public static SearchResult IDAStarSolve(State initial, State goal, SolverConfig config, SearchMetrics metrics) {
+        IDAStarSearch search = new IDAStarSearch(initial, goal, config.getHeuristic(), null, metrics);
+        int h = config.getHeuristic().h(initial, goal);
+        int iterations = 0;
+
+        // Deepen the f bound to the lowest f which exceeded it
+        for (int bound = h; bound != Integer.MAX_VALUE; ) {
+            iterations++;
+            int t = search.search(0, h, bound, NO_OP);
+            if (t == FOUND) {
+                metrics.met(true);
+                metrics.setSolutionLength(bound);
+                return SearchResult.solved("Found path: depth:" + bound + "\n"
+                        + "Nodes Generated: " + metrics.getGenerated() + " (" + iterations + " iterations)\n",
+                        search.toNode(initial, goal, bound));
+            }
+            bound = t;
+        }
+        return SearchResult.noSolution("");
+    }
+
+    /**
+     * @param g       Depth of the current board
+     * @param h       Heuristic of the current board
+     * @param bound   Largest f to expand in this iteration
+     * @param lastOp  Ordinal of the operator that led to the current board,
+     *                or NO_OP at the root
+     * @return  FOUND, or the lowest f above the bound that was generated
+     */
+    int search(int g, int h, int bound, int lastOp) {
+        int f = g + h;
+        if (f > bound)
+            return f;
+        if (packed == goal)
+            return FOUND;
+        if (stop != null && stop.get())
+            return Integer.MAX_VALUE;
+        if (g == path.length)
+            path = Arrays.copyOf(path, 2*path.length);
+        metrics.expanded(SearchMetrics.FWD);
+
+        int min = Integer.MAX_VALUE;
+        int row = blank / boardSize;
+        int col = blank % boardSize;
+        for (int op = 0; op < OPERATORS.length; op++) {
+            // Don't undo the move that led here
+            if (lastOp != NO_OP && OPERATORS[op].reverse().ordinal() == lastOp)
+                continue;
+
+            // Find the cell the blank tile moves to
+            int target;
+            switch (OPERATORS[op]) {
+                case Up:
+                    if (row == 0)
+                        continue;
+                    target = blank - boardSize;
+                    break;
+                case Down:
+                    if (row == boardSize - 1)
+                        continue;
+                    target = blank + boardSize;
+                    break;
+                case Left:
+                    if (col == 0)
+                        continue;
+                    target = blank - 1;
+                    break;
+                default:
+                    if (col == boardSize - 1)
+                        continue;
+                    target = blank + 1;
+                    break;
+            }
+
+            // Make the move
+            long parent = packed;
+            int parentBlank = blank;
+            int tile = (int) (packed >>> (target << 2)) & 0xF;
+            packed = (packed & ~(0xFL << (target << 2))) | ((long) tile << (blank << 2));
+            blank = target;
+            metrics.generated(SearchMetrics.FWD);
+
+            long start = metrics.heuristicStart();
+            int childH = heuristic.h(boardSize, packed, blank, parent, parentBlank, h, correctPos);
+            metrics.heuristicEnd(start);
+            int t = search(g + 1, childH, bound, op);
+            if (t == FOUND) {
+                path[g] = (byte) op;
+                return FOUND;
+            }
+            if (t < min)
+                min = t;
+
+            // Unmake the move
+            packed = parent;
+            blank = parentBlank;
+        }
+        return min;
+    }
+
+    /**
+     * @return  Operator ordinals of the found path, indexed by depth
+     */
+    byte[] getPath() {
+        return path;
+    }
+
+    /**
+     * @param initial  Initial state
+     * @param goal     Goal state
+     * @param depth    Solution depth
+     * @return  Goal node of the found path, with back pointers towards the
+     *          initial state
+     */
+    private Node toNode(State initial, State goal, int depth) {
+        State.Operator[] ops = new State.Operator[depth];
+        for (int g = 0; g < depth; g++)
+            ops[g] = OPERATORS[path[g]];
+        return NodeStore.path(initial, ops, heuristic, goal);
+    }
+}
@@ -0,0 +1,347 @@
+/**
+ * Linear conflict heuristic: the Manhattan distance plus the additional
+ * moves required to eliminate conflicts between tiles that are in their
+ * goal row or column but in the wrong order.
+ *
+ * The moves of a line are looked up by its conflict counts on 3x3 and 4x4
+ * boards. On other boards every tile of the line outside a longest
+ * increasing subsequence of goal positions has to leave the line and come
+ * back, taking two moves.
+ */
+public class LinearConflict implements Heuristic {
+
+    // Scratch arrays of movesForLine, goals and lengths, grown to the board
+    // size. The heuristic is shared by the solver threads, so each thread
+    // has its own.
+    private final ThreadLocal<int[][]> scratch = ThreadLocal.withInitial(() -> new int[2][0]);
+
+    /* (non-Javadoc)
+     * @see Heuristic#h(int, long, Position[])
+     */
+    @Override
+    public int h(int boardSize, long packed, Position[] correctPos)
+    {
+        if (boardSize != 3 && boardSize != 4) {
+            int reqMoves = 0;
+            for (int line = 0; line < boardSize; line++)
+                reqMoves += lineConflicts(packed, boardSize, line, true, correctPos)
+                          + lineConflicts(packed, boardSize, line, false, correctPos);
+            return reqMoves + ManhattanDistance.manhattanDistance(boardSize, packed, correctPos);
+        }
+
+        // Required number moves to remove all linear conflicts
+        int reqMoves = 0;
+        
+        // Number or horizontal and vertical conflicts a particular
+        // tile is involved in
+        int hConflicts[][] = new int[boardSize][boardSize];
+        int vConflicts[][] = new int[boardSize][boardSize];
+        
+        // conflictCount[i] is the number of tiles in a row or column
+        // that have i conflicts with other tiles in the same row/column
+        int conflictCount[];
+        
+        // For each non-blank tile on the board
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                if (tile(packed, boardSize, i, j) != 0) {
+                    // If the tile is in its goal row
+                    if (correctPos[tile(packed, boardSize, i, j)].row == i) {
+                        // For each of the following tiles in the row
+                        for (int k = j + 1; k < boardSize; k++) {
+                            // If the second tile is also in its goal row
+                            // and the two tiles are in the wrong relative order
+                            // then increase the conflict count for both tiles
+                            if (tile(packed, boardSize, i, k) != 0 &&
+                                correctPos[tile(packed, boardSize, i, k)].row == i &&
+                                correctPos[tile(packed, boardSize, i, k)].col < correctPos[tile(packed, boardSize, i, j)].col) {
+                                hConflicts[i][k]++;
+                                hConflicts[i][j]++;
+                            }
+                        }
+                    }
+                    // If the tile is in its goal column
+                    if (correctPos[tile(packed, boardSize, i, j)].col == j) {
+                        // For each of the following tiles in the column
+                        for (int k = i + 1; k < boardSize; k++) {
+                            // If the second tile is also in its goal column
+                            // and the two tiles are in the wrong relative order
+                            // then increase the conflict count for both tiles
+                            if (tile(packed, boardSize, k, j) != 0 &&
+                                correctPos[tile(packed, boardSize, k, j)].col == j &&
+                                correctPos[tile(packed, boardSize, k, j)].row < correctPos[tile(packed, boardSize, i, j)].row) {
+                                vConflicts[k][j]++;
+                                vConflicts[i][j]++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        
+        // For each row, add number of moves to eliminate conflicts to required moves
+        for (int i = 0; i < boardSize; i++) {
+            conflictCount = new int[boardSize];
+            for (int j = 0; j < boardSize; j++) {
+                conflictCount[hConflicts[i][j]]++;
+            }
+            reqMoves += movesForConflicts(boardSize, conflictCount);
+        }
+        
+        // For each column, add number of moves to eliminate conflicts to required moves
+        for (int j = 0; j < boardSize; j++) {
+            conflictCount = new int[boardSize];
+            for (int i = 0; i < boardSize; i++) {
+                conflictCount[vConflicts[i][j]]++;
+            }
+            reqMoves += movesForConflicts(boardSize, conflictCount);
+        }
+        
+        // Return the sum of the Manhattan distance and the additional
+        // required moves to resolve conflicts
+        return reqMoves + ManhattanDistance.manhattanDistance(boardSize, packed, correctPos);
+    }
+
+    /* (non-Javadoc)
+     * @see Heuristic#h(int, long, int, long, int, int, Position[])
+     */
+    @Override
+    public int h(int boardSize, long packed, int blank, long parent, int parentBlank, int parentH, Position[] correctPos)
+    {
+        // Only the lines the moved tile left and entered change: rows for
+        // a vertical move, columns for a horizontal one
+        boolean row = (blank % boardSize) == (parentBlank % boardSize);
+        int from = row ? blank / boardSize : blank % boardSize;
+        int to = row ? parentBlank / boardSize : parentBlank % boardSize;
+        int h = parentH + ManhattanDistance.moveDelta(boardSize, packed, blank, parentBlank, correctPos)
+              + lineConflicts(packed, boardSize, from, row, correctPos)
+              - lineConflicts(parent, boardSize, from, row, correctPos)
+              + lineConflicts(packed, boardSize, to, row, correctPos)
+              - lineConflicts(parent, boardSize, to, row, correctPos);
+
+        assert h == h(boardSize, packed, correctPos) : "Incremental heuristic " + h + " differs from " + h(boardSize, packed, correctPos);
+        return h;
+    }
+
+    /* (non-Javadoc)
+     * @see Heuristic#h(State, Position[])
+     */
+    @Override
+    public int h(State s, Position[] correctPos)
+    {
+        int reqMoves = 0;
+        for (int line = 0; line < s.getBoardSize(); line++)
+            reqMoves += lineConflicts(s, line, true, correctPos) + lineConflicts(s, line, false, correctPos);
+        return reqMoves + s.manhattanDistance(correctPos);
+    }
+
+    /* (non-Javadoc)
+     * @see Heuristic#h(State, State, int, Position[])
+     */
+    @Override
+    public int h(State s, State parent, int parentH, Position[] correctPos)
+    {
+        int boardSize = s.getBoardSize();
+        int blank = s.getBlank();
+        int parentBlank = parent.getBlank();
+        boolean row = (blank % boardSize) == (parentBlank % boardSize);
+        int from = row ? blank / boardSize : blank % boardSize;
+        int to = row ? parentBlank / boardSize : parentBlank % boardSize;
+        int h = parentH + ManhattanDistance.moveDelta(s, parentBlank, correctPos)
+              + lineConflicts(s, from, row, correctPos)
+              - lineConflicts(parent, from, row, correctPos)
+              + lineConflicts(s, to, row, correctPos)
+              - lineConflicts(parent, to, row, correctPos);
+
+        assert h == h(s, correctPos) : "Incremental heuristic " + h + " differs from " + h(s, correctPos);
+        return h;
+    }
+
+    /**
+     * Linear conflict moves of a single row or column, as counted by the
+     * full heuristic.
+     *
+     * @param packed      Packed game board
+     * @param boardSize   Number of rows (and columns) of the board
+     * @param line        Row or column index
+     * @param row         True for a row, false for a column
+     * @param correctPos  Position of each tile in the goal state
+     * @return  Number of moves required to resolve the line's conflicts
+     */
+    private int lineConflicts(long packed, int boardSize, int line, boolean row, Position[] correctPos)
+    {
+        // Cell of the first tile of the line, and step between its tiles
+        int first = row ? line*boardSize : line;
+        int step = row ? 1 : boardSize;
+
+        if (boardSize != 3 && boardSize != 4) {
+            int[][] arrays = scratch(boardSize);
+            int[] goals = arrays[0];
+            int k = 0;
+            for (int j = 0; j < boardSize; j++) {
+                int a = (int) (packed >>> ((first + j*step) << 2)) & 0xF;
+                if (a != 0 && (row ? correctPos[a].row : correctPos[a].col) == line)
+                    goals[k++] = row ? correctPos[a].col : correctPos[a].row;
+            }
+            return movesForLine(goals, k, arrays[1]);
+        }
+
+        // Byte i of counts is the number of tiles with i conflicts
+        int counts = 0;
+        for (int j = 0; j < boardSize; j++) {
+            int conflicts = 0;
+            int a = (int) (packed >>> ((first + j*step) << 2)) & 0xF;
+            if (a != 0 && (row ? correctPos[a].row : correctPos[a].col) == line) {
+                int goalA = row ? correctPos[a].col : correctPos[a].row;
+                for (int k = 0; k < boardSize; k++) {
+                    int b = (int) (packed >>> ((first + k*step) << 2)) & 0xF;
+                    if (k == j || b == 0 || (row ? correctPos[b].row : correctPos[b].col) != line)
+                        continue;
+                    // Tiles in the wrong relative order conflict
+                    int goalB = row ? correctPos[b].col : correctPos[b].row;
+                    if ((k > j) ? goalB < goalA : goalA < goalB)
+                        conflicts++;
+                }
+            }
+            counts += 1 << (conflicts << 3);
+        }
+        return movesForConflicts(boardSize, counts & 0xFF, (counts >>> 8) & 0xFF, (counts >>> 16) & 0xFF, counts >>> 24);
+    }
+
+    /**
+     * Linear conflict moves of a single row or column of a board of any
+     * size.
+     *
+     * @param s           Game board
+     * @param line        Row or column index
+     * @param row         True for a row, false for a column
+     * @param correctPos  Position of each tile in the goal state
+     * @return  Number of moves required to resolve the line's conflicts
+     */
+    private int lineConflicts(State s, int line, boolean row, Position[] correctPos)
+    {
+        int boardSize = s.getBoardSize();
+        int first = row ? line*boardSize : line;
+        int step = row ? 1 : boardSize;
+        int[][] arrays = scratch(boardSize);
+        int[] goals = arrays[0];
+
+        // Goal positions along the line of the tiles in their goal line
+        int k = 0;
+        for (int j = 0; j < boardSize; j++) {
+            int a = s.getTile(first + j*step);
+            if (a != 0 && (row ? correctPos[a].row : correctPos[a].col) == line)
+                goals[k++] = row ? correctPos[a].col : correctPos[a].row;
+        }
+        return movesForLine(goals, k, arrays[1]);
+    }
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the board
+     * @return  The calling thread's goals and lengths arrays, of at least
+     *          boardSize entries
+     */
+    private int[][] scratch(int boardSize)
+    {
+        int[][] arrays = scratch.get();
+        if (arrays[0].length < boardSize) {
+            arrays[0] = new int[boardSize];
+            arrays[1] = new int[boardSize];
+        }
+        return arrays;
+    }
+
+    /**
+     * @param goals    Goal positions along a line of the tiles in their
+     *                 goal line, in their order on the line
+     * @param k        Number of such tiles
+     * @param lengths  Scratch array of at least k entries
+     * @return  Twice the number of tiles outside a longest increasing
+     *          subsequence of the goal positions
+     */
+    private static int movesForLine(int[] goals, int k, int[] lengths)
+    {
+        // Length of the longest increasing subsequence ending at each tile
+        int longest = 0;
+        for (int j = 0; j < k; j++) {
+            lengths[j] = 1;
+            for (int i = 0; i < j; i++) {
+                if (goals[i] < goals[j] && lengths[i] + 1 > lengths[j])
+                    lengths[j] = lengths[i] + 1;
+            }
+            longest = Math.max(longest, lengths[j]);
+        }
+        return 2*(k - longest);
+    }
+
+    /**
+     * @param packed     Packed game board
+     * @param boardSize  Number of rows (and columns) of the board
+     * @param row        Board row
+     * @param col        Board column
+     * @return  Tile at the given position (0 for the blank tile)
+     */
+    private static int tile(long packed, int boardSize, int row, int col)
+    {
+        return (int) (packed >>> ((row*boardSize + col) << 2)) & 0xF;
+    }
+
+    /**
+     * @param boardSize      Number of rows (and columns) of the board
+     * @param conflictCount  conflictCount[i] is the number of tiles with i conflicts
+     * @return  Number of moves required to resolve linear conflicts
+     */
+    private static int movesForConflicts(int boardSize, int[] conflictCount)
+    {
+        return movesForConflicts(boardSize, conflictCount[0], conflictCount[1], conflictCount[2],
+                                 (boardSize == 4) ? conflictCount[3] : 0);
+    }
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the board
+     * @param c0  Number of tiles with no conflicts
+     * @param c1  Number of tiles with 1 conflict
+     * @param c2  Number of tiles with 2 conflicts
+     * @param c3  Number of tiles with 3 conflicts
+     * @return  Number of moves required to resolve linear conflicts
+     */
+    private static int movesForConflicts(int boardSize, int c0, int c1, int c2, int c3)
+    {
+        if(boardSize == 4) {
+            // If every tile has 0 conflicts
+            // Matches 1234
+            if (c0 == boardSize)
+                return 0; // No additional moves required
+
+                // If every tile has 3 conflicts
+                // Matches 4321
+            else if (c3 == 4)
+                return 6; // 6 additional moves required
+
+                // If 2 tiles have 1 conflict each
+                // or 2 tiles have 1 conflict each and 1 tile has 2 conflicts
+                // or 3 tiles have 1 conflict each and 1 tiles has 3 conflicts
+                // Matches 1243,1324,1342,1423,2134,2314,2341,3124,4123
+            else if (c1 == 2 && c2 != 2 || c1 == 3)
+                return 2; // 2 additional moves required
+
+                // Otherwise
+                // Matches 1432,2143,2413,2431,3142,3214,3241,3412,3421,4132,4213,4231,4312
+            else
+                return 4; // 4 additional moves required
+        }
+
+        else{ // the board size is 3
+            // Matches 123
+            if (c0 == boardSize)
+                return 0; // No additional moves required
+            // Matches 321
+            else if (c2 == 3)
+                return 4;
+            // Matches 132, 312, 213, 231
+            else
+                return 2;
+        }
+    }
+
+}
@@ -1,12 +1,5 @@
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
 
 public class MMsearch {
 
@@ -15,202 +8,205 @@ public class MMsearch {
      * 
      * @param fwdInitial initial state
      * @param fwdGoal    goal state
-     * @return Array of 2 Nodes where both forward and backward
-     *         paths meet.  First node has back pointer towards
-     *         initial state and second node has back pointer
-     *         towards goal state.
+     * @param config     solver settings
+     * @return the result, with the forward and backward meeting nodes
+     *         of the shortest path.
      */
-    public static Node[] MMSolve(State fwdInitial, State fwdGoal, FileWriter myWriter) {
-        try{
-			final int FWD = 0;        // Forward direction
-			final int REV = 1;        // Backward direction
-			int U = Integer.MAX_VALUE;
-
-			int[] directions = {FWD, REV};
-			// Min-heap for removing the node from the open set with the
-			// smallest f-score.
-			List<Queue<Node>> fOpenHeap = new ArrayList<Queue<Node>>(2);
-			List<Queue<Node>> gOpenHeap = new ArrayList<Queue<Node>>(2);
-			List<Queue<Node>> prOpenHeap = new ArrayList<Queue<Node>>(2);
-
-			// set comparators. by f is built in the Node object
-			Comparator<Node> byG = new Comparator<Node>() {
-				@Override
-				public int compare(Node a, Node b) {
-					if (a.getDepth() < b.getDepth()) {
-						return -1;
-					} else if (a.getDepth() == b.getDepth()) {
-						return 0;
-					} else {
-						return 1;
-					}	    }
-			};
-			Comparator<Node> byPriorityAndG = new Comparator<Node>() {
-				@Override
-				public int compare(Node a, Node b) {
-					if (a.getPriority() < b.getPriority())
-						return -1;
-					else if (a.getPriority() == b.getPriority()){
-						if (a.getDepth() < b.getDepth()) {
-							return -1;
-						} else if (a.getDepth() == b.getDepth()) {
-							return 0;
-						} else {
-							return 1;
-						}
-					} else
-						return 1;
-				}
-			};
-			// Hash tables with States as keys and Nodes as data for
-			// checking if a state is in the open or closed set.
-			List<Map<State, Node>> openHash = new ArrayList<Map<State, Node>>(2);
-			List<Map<State, Node>> closedHash = new ArrayList<Map<State, Node>>(2);
-			List<Map<Node, State>> openHashNS = new ArrayList<Map<Node, State>>(2);
-			List<Map<Node, State>> closedHashNS = new ArrayList<Map<Node, State>>(2);
-
-			// Initial and goal states
-			State[] initial = new State[] {fwdInitial, fwdGoal};
-			State[] goal = new State[] {fwdGoal, fwdInitial};
-
-			// For both forward and backward directions
-			for (int i : directions) {
-				// Create empty heap and hash maps
-				fOpenHeap.add(new PriorityQueue<Node>());
-				gOpenHeap.add(new PriorityQueue<Node>(byG));
-				prOpenHeap.add(new PriorityQueue<Node>(byPriorityAndG));
-				openHash.add(new HashMap<State, Node>());
-				closedHash.add(new HashMap<State, Node>());
-				openHashNS.add(new HashMap<Node, State>());
-				closedHashNS.add(new HashMap<Node, State>());
-
-				// Add initial node to the open set
-				Node n = new Node(initial[i], null, null, (initial[i].h(goal[i])));
-
-				openHash.get(i).put(initial[i], n);
-				openHashNS.get(i).put(n, initial[i]);
-				fOpenHeap.get(i).add(n);
-				gOpenHeap.get(i).add(n);
-				prOpenHeap.get(i).add(n);
+    public static SearchResult MMSolve(State fwdInitial, State fwdGoal, SolverConfig config) {
+        return MMSolve(fwdInitial, fwdGoal, config, SearchMetrics.of("MM", config));
+    }
+
+	/**
+     * Solve n-puzzle using MM search Algorithm
+     *
+     * @param fwdInitial initial state
+     * @param fwdGoal    goal state
+     * @param config     solver settings
+     * @param metrics    metrics filled in during the search
+     * @return the result, with the forward and backward meeting nodes
+     *         of the shortest path.
+     */
+    public static SearchResult MMSolve(State fwdInitial, State fwdGoal, SolverConfig config, SearchMetrics metrics) {
+		final int FWD = 0;        // Forward direction
+		final int REV = 1;        // Backward direction
+		int U = Integer.MAX_VALUE;
+		int fwdMeetDepth = 0;     // Forward depth of the meeting point of U
+		int[] meetNode = {NodeStore.NO_PARENT, NodeStore.NO_PARENT};   // Meeting nodes of U
+		Heuristic heuristic = config.getHeuristic();
+
+		int[] directions = {FWD, REV};
+		// Bucket queues for removing the node from the open set with
+		// the smallest f-score, depth, and priority (ties broken by
+		// smallest depth).
+		List<BucketQueue> fOpenHeap = new ArrayList<BucketQueue>(2);
+		List<BucketQueue> gOpenHeap = new ArrayList<BucketQueue>(2);
+		List<BucketQueue> prOpenHeap = new ArrayList<BucketQueue>(2);
+
+		// Every node generated in each direction, and indexes from States
+		// to their index in it for checking if a state is in the open or
+		// closed set. The indexes are ranked for boards up to 3x3.
+		List<NodeStore> nodes = new ArrayList<NodeStore>(2);
+		List<StateIndex> stateHash = new ArrayList<StateIndex>(2);
+		int[] closedCount = new int[2];
+
+		// Open sets indexed for the front-to-front heuristic of the
+		// opposite direction
+		List<FrontierIndex> frontier = new ArrayList<FrontierIndex>(2);
+
+		// Initial and goal states
+		State[] initial = new State[] {fwdInitial, fwdGoal};
+		State[] goal = new State[] {fwdGoal, fwdInitial};
+
+		// For both forward and backward directions
+		for (int i : directions) {
+			// Create empty heap and hash maps
+			fOpenHeap.add(new BucketQueue());
+			gOpenHeap.add(new BucketQueue());
+			prOpenHeap.add(new BucketQueue());
+			nodes.add(new NodeStore(initial[i].getBoardSize()));
+			stateHash.add(StateIndex.of(initial[i], goal[i]));
+			frontier.add((config.isF2f() || config.isF2fEndCondition()) ? new FrontierIndex(nodes.get(i), initial[i], heuristic) : null);
+
+			// Add initial node to the open set
+			int n = nodes.get(i).add(initial[i], NodeStore.NO_PARENT, null, heuristic.h(initial[i], goal[i]));
+
+			stateHash.get(i).put(initial[i], n);
+			addToOpen(nodes.get(i), n, fOpenHeap.get(i), gOpenHeap.get(i), prOpenHeap.get(i), config.isF2f() ? frontier.get(i) : null);
+		}
+
+		// While there are still elements in the open set
+		while(!fOpenHeap.get(FWD).isEmpty() && !fOpenHeap.get(REV).isEmpty()) {
+			// get minimum priority
+			int fwdPriority = prOpenHeap.get(FWD).peekPrimary();
+			int C = Math.min(fwdPriority, prOpenHeap.get(REV).peekPrimary());
+
+			// stop condition: test U
+			if (U<=Math.max(Math.max(C, fOpenHeap.get(FWD).peekPrimary()),
+							Math.max(fOpenHeap.get(REV).peekPrimary(),
+										gOpenHeap.get(FWD).peekPrimary()+
+										gOpenHeap.get(REV).peekPrimary()+1
+							))) {
+
+				int closedNodeCount = closedCount[FWD] + closedCount[REV];
+				int openNodeCount = stateHash.get(FWD).size() + stateHash.get(REV).size() - closedNodeCount + 1;
+
+				metrics.setSolutionLength(U);
+				return SearchResult.solved("Found path: Forward depth:" + fwdMeetDepth + " backward depth: " + (U - fwdMeetDepth) + "\n"
+						+ "Nodes Generated: " + (openNodeCount + closedNodeCount)
+						+ " (" + openNodeCount + " open/" + closedNodeCount + " closed)\n"
+						+ "Path length: " + U + "\n",
+						new Node(nodes.get(FWD), meetNode[FWD]), new Node(nodes.get(REV), meetNode[REV]));
+			} else if (U <= C) {
+				return SearchResult.noSolution("U <= C, but not meeting stop condition! \n");
 			}
 
-			// While there are still elements in the open set
-			while(!fOpenHeap.get(FWD).isEmpty() && !fOpenHeap.get(REV).isEmpty()) {
-				// get minimum priority
-				int fwdPriority = prOpenHeap.get(FWD).peek().getPriority();
-				int C = Math.min(fwdPriority, prOpenHeap.get(REV).peek().getPriority());
-
-				// stop condition: test U
-				if (U<=Math.max(Math.max(C, fOpenHeap.get(FWD).peek().getFScore()),
-								Math.max(fOpenHeap.get(REV).peek().getFScore(),
-											gOpenHeap.get(FWD).peek().getDepth()+
-											gOpenHeap.get(REV).peek().getDepth()+1
-								))) {
-
-					int openNodeCount = openHash.get(FWD).size() + openHash.get(REV).size() + 1;
-					int closedNodeCount = closedHash.get(FWD).size() + closedHash.get(REV).size();
-
-					myWriter.write("Nodes Generated: " + (openNodeCount + closedNodeCount));
-					myWriter.write(" (" + openNodeCount + " open/");
-					myWriter.write(closedNodeCount + " closed)\n");
-					myWriter.write("Path length: " + U + "\n");
-
-					return new Node[]{};
-				} else if (U <= C) {
-					myWriter.write("U <= C, but not meeting stop condition! \n");
-					return null;
+			// decide direction to expand
+			int dir = (C==fwdPriority) ? FWD : REV;
+			int opposite_dir = (C==fwdPriority) ? REV : FWD;
+			NodeStore dirNodes = nodes.get(dir);
+
+			// choose n ∈ OpenF for which prF (n) = prminF and gF (n) is
+			// minimum
+			int n = prOpenHeap.get(dir).pop();
+			// get the state for the selected node
+			State s = dirNodes.getState(n);
+
+			// Move the node from the open to closed set, remove from heaps
+			dirNodes.setClosed(n, true);
+			closedCount[dir]++;
+			metrics.expanded(dir);
+			metrics.sizes(dir, prOpenHeap.get(dir).size() + 1, closedCount[dir]);
+			fOpenHeap.get(dir).remove(n);
+			gOpenHeap.get(dir).remove(n);
+			if (config.isF2f())
+				frontier.get(dir).remove(n);
+
+			// For each of the four possible operators
+			for (State.Operator op : State.Operator.values()) {
+				// Create a new state that is the result of the move
+				State newState = s.move(op);
+
+				// If the move is invalid
+				if (newState == null) {
+					continue;
 				}
-
-				// decide direction to expand
-				int dir = (C==fwdPriority) ? FWD : REV;
-				int opposite_dir = (C==fwdPriority) ? REV : FWD;
-
-				// choose n ∈ OpenF for which prF (n) = prminF and gF (n) is
-				// minimum
-				Node n = prOpenHeap.get(dir).poll();
-				// get the state for the selected node
-				State s = n.getState();
-
-				// Move the node from the open to closed set, remove from heaps
-				openHash.get(dir).remove(s);
-				openHashNS.get(dir).remove(n);
-				closedHash.get(dir).put(s, n);
-				closedHashNS.get(dir).put(n, s);
-				fOpenHeap.get(dir).remove(n);
-				gOpenHeap.get(dir).remove(n);
-				prOpenHeap.get(dir).remove(n);
-
-				// For each of the four possible operators
-				for (State.Operator op : State.Operator.values()) {
-					// Create a new state that is the result of the move
-					State newState = s.move(op);
-
-					// If the move is invalid
-					if (newState == null) {
+				metrics.generated(dir);
+				int newNode;
+				// if c ∈ OpenF ∪ ClosedF and  gF (c) ≤ gF (n) + cost(n, c) then continue
+				int existingIndex = stateHash.get(dir).get(newState);
+				// the child is in the open or closed list
+				if (existingIndex != StateTable.NOT_FOUND) {
+					newNode = existingIndex;
+					// test if cost is lower now
+					if (dirNodes.getDepth(newNode) <= dirNodes.getDepth(n) + 1) {
 						continue;
 					}
-					Node newNode = null;
-					// if c ∈ OpenF ∪ ClosedF and  gF (c) ≤ gF (n) + cost(n, c) then continue
-					{
-						newNode = openHash.get(dir).get(newState);
-						if (newNode == null) {
-							newNode = closedHash.get(dir).get(newState);
-						}
-						// the child is in the open or closed list
-						if (newNode != null) {
-							// test if cost is lower now
-							if (newNode.getDepth() <= n.getDepth() + 1) {
-								continue;
-							}
-							openHash.get(dir).remove(newState);
-							openHashNS.get(dir).remove(newNode);
-							fOpenHeap.get(dir).remove(newNode);
-							gOpenHeap.get(dir).remove(newNode);
-							prOpenHeap.get(dir).remove(newNode);
-							closedHash.get(dir).remove(newState);
-							closedHashNS.get(dir).remove(newNode);
-							newNode.setDepth((short) (n.getDepth()+1));
-							newNode.setBackPtr(n);
-							newNode.setOp(op);
-						}
+					// reopen a closed node; an open node is moved to the
+					// buckets of its new keys below
+					if (dirNodes.isClosed(newNode)) {
+						dirNodes.setClosed(newNode, false);
+						closedCount[dir]--;
+						metrics.reopened(dir);
 					}
+					dirNodes.setDepth(newNode, (short) (dirNodes.getDepth(n)+1));
+					dirNodes.setParent(newNode, n);
+					dirNodes.setOp(newNode, op);
+				} else {
 					// create new node for this state, if not already found in open/closed lists
-					if (newNode == null) {
-						//calculate g value
-						if (Config.f2fEndCondition){
-							newNode = new Node(newState, n, op, (short)(newState.h_f2fEndCondition(openHashNS.get(opposite_dir),fOpenHeap.get(opposite_dir), n)));
-						} else if (Config.f2f) {
-							newNode = new Node(newState, n, op, (short)(newState.h_f2f(openHash.get(opposite_dir))));
-						} else {
-							newNode = new Node(newState, n, op, (newState.h(goal[dir])));
-						}
+					//calculate g value
+					short h;
+					long t = metrics.heuristicStart();
+					if (config.isF2fEndCondition()){
+						h = (short)(frontier.get(opposite_dir).h_f2fEndCondition(newState, fOpenHeap.get(opposite_dir), dirNodes.getDepth(n)));
+					} else if (config.isF2f()) {
+						h = (short)(frontier.get(opposite_dir).h_f2f(newState));
+					} else {
+						h = heuristic.h(newState, s, dirNodes.getHeuristic(n), goal[dir]);
 					}
-					// add c to OpenF
-					openHash.get(dir).put(newState, newNode);
-					openHashNS.get(dir).put(newNode, newState);
-					fOpenHeap.get(dir).add(newNode);
-					gOpenHeap.get(dir).add(newNode);
-					prOpenHeap.get(dir).add(newNode);
-
-					// if c ∈ OpenB then U :=min(U,gF(c)+gB(c))
-					Node matchedNode = openHash.get(1-dir).get(newState);
-					if (matchedNode != null) {
-						U = Math.min(U,
-								matchedNode.getDepth() +
-								newNode.getDepth()
-								);
-						if (dir==FWD) {
-							myWriter.write("Found path: Forward depth:" + newNode.getDepth() + " backward depth: " + matchedNode.getDepth() + "\n");
-						} else {
-							myWriter.write("Found path: Forward depth:" + matchedNode.getDepth() + " backward depth: " + newNode.getDepth() + "\n");
-						}
+					metrics.heuristicEnd(t);
+					newNode = dirNodes.add(newState, n, op, h);
+					stateHash.get(dir).put(newState, newNode);
+				}
+				// add c to OpenF
+				addToOpen(dirNodes, newNode, fOpenHeap.get(dir), gOpenHeap.get(dir), prOpenHeap.get(dir), config.isF2f() ? frontier.get(dir) : null);
+
+				// if c ∈ OpenB then U :=min(U,gF(c)+gB(c))
+				int matchedNode = stateHash.get(opposite_dir).get(newState);
+				if (matchedNode != StateTable.NOT_FOUND && !nodes.get(opposite_dir).isClosed(matchedNode)) {
+					int matchedDepth = nodes.get(opposite_dir).getDepth(matchedNode);
+					int newDepth = dirNodes.getDepth(newNode);
+					metrics.met(matchedDepth + newDepth < U);
+					if (matchedDepth + newDepth < U) {
+						U = matchedDepth + newDepth;
+						fwdMeetDepth = (dir==FWD) ? newDepth : matchedDepth;
+						meetNode[dir] = newNode;
+						meetNode[opposite_dir] = matchedNode;
 					}
 				}
 			}
-		}catch(IOException e) {
-			System.out.println("An error occurred while writing to output file");
 		}
-        return null;    // No solution found
+		return SearchResult.noSolution("");
     }
 
+	/**
+	 * Add a node to the open set queues of one direction, or move it to
+	 * the buckets of its current keys if it is already open
+	 *
+	 * @param nodes       Nodes of the direction
+	 * @param n           Index of the node to add
+	 * @param fOpenHeap   Open set ordered by f-score
+	 * @param gOpenHeap   Open set ordered by depth
+	 * @param prOpenHeap  Open set ordered by priority and depth
+	 * @param frontier    Open set indexed for the front-to-front heuristic,
+	 *                    or null if it is not used
+	 */
+	private static void addToOpen(NodeStore nodes, int n, BucketQueue fOpenHeap, BucketQueue gOpenHeap, BucketQueue prOpenHeap,
+								  FrontierIndex frontier) {
+		fOpenHeap.update(n, nodes.getFScore(n));
+		gOpenHeap.update(n, nodes.getDepth(n));
+		prOpenHeap.update(n, nodes.getPriority(n), nodes.getDepth(n));
+		if (frontier != null)
+			frontier.add(n);
+	}
+
 }
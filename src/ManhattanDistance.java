@@ -0,0 +1,103 @@
+/**
+ * Manhattan distance heuristic: the sum over all tiles of the number of
+ * rows and columns between the tile and its goal position.
+ */
+public class ManhattanDistance implements Heuristic {
+
+    /* (non-Javadoc)
+     * @see Heuristic#h(int, long, Position[])
+     */
+    @Override
+    public int h(int boardSize, long packed, Position[] correctPos)
+    {
+        return manhattanDistance(boardSize, packed, correctPos);
+    }
+
+    /* (non-Javadoc)
+     * @see Heuristic#h(int, long, int, long, int, int, Position[])
+     */
+    @Override
+    public int h(int boardSize, long packed, int blank, long parent, int parentBlank, int parentH, Position[] correctPos)
+    {
+        int h = parentH + moveDelta(boardSize, packed, blank, parentBlank, correctPos);
+        assert h == h(boardSize, packed, correctPos) : "Incremental heuristic " + h + " differs from " + h(boardSize, packed, correctPos);
+        return h;
+    }
+
+    /* (non-Javadoc)
+     * @see Heuristic#h(State, Position[])
+     */
+    @Override
+    public int h(State s, Position[] correctPos)
+    {
+        return s.manhattanDistance(correctPos);
+    }
+
+    /* (non-Javadoc)
+     * @see Heuristic#h(State, State, int, Position[])
+     */
+    @Override
+    public int h(State s, State parent, int parentH, Position[] correctPos)
+    {
+        int h = parentH + moveDelta(s, parent.getBlank(), correctPos);
+        assert h == h(s, correctPos) : "Incremental heuristic " + h + " differs from " + h(s, correctPos);
+        return h;
+    }
+
+    /**
+     * @param boardSize   Number of rows (and columns) of the board
+     * @param packed      Packed game board
+     * @param correctPos  Position of each tile in the goal state
+     * @return  Manhattan distance from goal state
+     */
+    static int manhattanDistance(int boardSize, long packed, Position[] correctPos)
+    {
+        int manhattan = 0;
+
+        // Compare each tile's actual row and column to the correct row
+        // and column, compute Manhattan distance, and add to sum.
+        for (int cell = 0; cell < boardSize*boardSize; cell++) {
+            int tile = (int) (packed >>> (cell << 2)) & 0xF;
+            if (tile != 0) {
+                manhattan += Math.abs(correctPos[tile].row - cell / boardSize);
+                manhattan += Math.abs(correctPos[tile].col - cell % boardSize);
+            }
+        }
+        return manhattan;
+    }
+
+    /**
+     * @param boardSize    Number of rows (and columns) of the board
+     * @param packed       Packed game board after a move
+     * @param blank        Cell of the blank after the move, where the moved
+     *                     tile was before it
+     * @param parentBlank  Cell of the blank before the move, where the moved
+     *                     tile is after it
+     * @param correctPos   Position of each tile in the goal state
+     * @return  Change of the Manhattan distance made by the move
+     */
+    static int moveDelta(int boardSize, long packed, int blank, int parentBlank, Position[] correctPos)
+    {
+        Position goal = correctPos[(int) (packed >>> (parentBlank << 2)) & 0xF];
+        return Math.abs(goal.row - parentBlank / boardSize) + Math.abs(goal.col - parentBlank % boardSize)
+             - Math.abs(goal.row - blank / boardSize) - Math.abs(goal.col - blank % boardSize);
+    }
+
+    /**
+     * moveDelta for a board of any size.
+     *
+     * @param s            Board after a move
+     * @param parentBlank  Cell of the blank before the move, where the moved
+     *                     tile is after it
+     * @param correctPos   Position of each tile in the goal state
+     * @return  Change of the Manhattan distance made by the move
+     */
+    static int moveDelta(State s, int parentBlank, Position[] correctPos)
+    {
+        int boardSize = s.getBoardSize();
+        int blank = s.getBlank();
+        Position goal = correctPos[s.getTile(parentBlank)];
+        return Math.abs(goal.row - parentBlank / boardSize) + Math.abs(goal.col - parentBlank % boardSize)
+             - Math.abs(goal.row - blank / boardSize) - Math.abs(goal.col - blank % boardSize);
+    }
+}
@@ -1,81 +1,104 @@
 public class Node implements Comparable<Node> {
     
-    private State state;        // The state for this node
-    private Node backPtr;       // Back pointer
-    private State.Operator op;  // Operator used to get to this node
-    private short depth;        // Depth of node in search tree
-    private short heuristic;    // Computed heuristic for node state
-    private int priority;
+    private final NodeStore store;  // Arena holding the node data
+    private final int index;        // Index of the node in the arena
     
     /**
-     * @param state    Puzzle state associated with this node
-     * @param backPtr  Back pointer
-     * @param op       Operation that led to this node
-     * @param h        Heuristic for node state
-     */
-    public Node(State state, Node backPtr, State.Operator op, short h) {
-        this.state = state;
-        this.backPtr = backPtr;
-        this.op = op;
-        this.heuristic = h;
-        
-        // Set root node depth to 0, and child node depth to
-        // parent depth + 1
-        if (backPtr == null) {
-            this.depth = 0;
-        } else {
-            this.depth = (short)(backPtr.depth + 1);
-        }
-        // MM / MMε
-        priority = Math.max(2*depth, depth+heuristic);
+     * @param store  Arena holding the node
+     * @param index  Index of the node in the arena
+     */
+    public Node(NodeStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+    
+    /**
+     * @return  Index of the node in its arena
+     */
+    public int getIndex() {
+        return index;
     }
     
     /**
      * @param backPtr  Back pointer to previous node
      */
     public void setBackPtr(Node backPtr) {
-        this.backPtr = backPtr;
+        store.setParent(index, backPtr.index);
     }
 
     /**
      * @param op  Operator that led to this state
      */
     public void setOp(State.Operator op) {
-        this.op = op;
+        store.setOp(index, op);
     }
-    
+
+    /**
+     * @param closed  True if the node moved to the closed set
+     */
+    public void setClosed(boolean closed) {
+        store.setClosed(index, closed);
+    }
+
+    /**
+     * @return  True if the node is in the closed set
+     */
+    public boolean isClosed() {
+        return store.isClosed(index);
+    }
+
     /**
      * @return  Tree depth plus heuristic
      */
     public int getFScore() {
-        return depth+heuristic;
+        return store.getFScore(index);
     }
     
     /**
      * @param depth  Tree depth
      */
     public void setDepth(short depth) {
-        this.depth = depth;
+        store.setDepth(index, depth);
     }
     
     /**
      * @return  Tree depth
      */
     public short getDepth() {
-        return depth;
+        return store.getDepth(index);
     }
 
     /**
      * @return  priority of the node
      */
     public int getPriority() {
-        return priority;
+        return store.getPriority(index);
     }
     /**
      * @return  Game state of the node
      */
     public State getState() {
-        return state;
+        return store.getState(index);
+    }
+
+    /**
+     * The path follows the parent indices, which can be shorter than the
+     * depth of the node if an ancestor was reopened at a lower depth.
+     *
+     * @return  Operators of the path from the initial state to the state
+     *          of this node
+     */
+    public State.Operator[] getOperators() {
+        int length = 0;
+        for (int i = index; store.getParent(i) != NodeStore.NO_PARENT; i = store.getParent(i))
+            length++;
+        State.Operator[] ops = new State.Operator[length];
+        int i = index;
+        for (int k = length - 1; k >= 0; k--) {
+            ops[k] = store.getOp(i);
+            i = store.getParent(i);
+        }
+        return ops;
     }
 
     
@@ -84,10 +107,17 @@ public class Node implements Comparable<Node> {
      *          the state of this node.
      */
     public String pathToString() {
-        if (backPtr != null)
-            return backPtr.pathToString() + "\n" + op + "\n" + state;
-        else
-            return "\nInitial State:\n" + state;
+        // Collect the path by walking the parent indices back to the root
+        int[] path = new int[getDepth() + 1];
+        int length = 0;
+        for (int i = index; i != NodeStore.NO_PARENT; i = store.getParent(i))
+            path[length++] = i;
+
+        StringBuilder sb = new StringBuilder("\nInitial State:\n");
+        sb.append(store.getState(path[length - 1]));
+        for (int k = length - 2; k >= 0; k--)
+            sb.append("\n").append(store.getOp(path[k])).append("\n").append(store.getState(path[k]));
+        return sb.toString();
     }
     
     /**
@@ -96,20 +126,47 @@ public class Node implements Comparable<Node> {
      *          printing the middle node twice
      */
     public String revPathToStringSkipFirst() {
-        if (backPtr != null)
-            return "\n" + op.reverse() + "\n" + backPtr.revPathToString();
-        else
-            return "\n" + op.reverse() + "\n";
+        StringBuilder sb = new StringBuilder("\n").append(store.getOp(index).reverse()).append("\n");
+        int parent = store.getParent(index);
+        if (parent != NodeStore.NO_PARENT)
+            sb.append(new Node(store, parent).revPathToString());
+        return sb.toString();
     }
     
     /**
      * @return  String representing the path from the current node to the goal node.
      */
     public String revPathToString() {
-        if (backPtr != null)
-            return state + "\n" + op.reverse() + "\n" + backPtr.revPathToString();
-        else
-            return state.toString();
+        StringBuilder sb = new StringBuilder();
+        int i = index;
+        while (store.getParent(i) != NodeStore.NO_PARENT) {
+            sb.append(store.getState(i)).append("\n").append(store.getOp(i).reverse()).append("\n");
+            i = store.getParent(i);
+        }
+        return sb.append(store.getState(i)).toString();
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+
+        if (obj == null || obj.getClass() != this.getClass())
+            return false;
+
+        Node other = (Node) obj;
+        return store == other.store && index == other.index;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return index;
     }
 
     /* (non-Javadoc)
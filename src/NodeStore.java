@@ -0,0 +1,250 @@
+import java.util.Arrays;
+
+/**
+ * Arena holding the search nodes of one search direction as parallel
+ * primitive arrays. Nodes are addressed by their int index and are never
+ * removed. Storage grows in fixed size chunks, so adding a node never
+ * copies the nodes already stored.
+ */
+public class NodeStore {
+
+    // Parent index of a root node
+    public static final int NO_PARENT = -1;
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final byte NO_OP = -1;
+    private static final State.Operator[] OPERATORS = State.Operator.values();
+
+    private final int boardSize;
+    private final int extraWords;   // Words of a packed state after the first
+
+    private long[][] states = new long[0][];     // Packed state, or its first word
+    private long[][] wideStates = new long[0][]; // Other words of the packed state
+    private byte[][] blanks = new byte[0][];     // Blank index of the state
+    private int[][] parents = new int[0][];      // Parent node index
+    private byte[][] ops = new byte[0][];        // Operator ordinal used to get to the node
+    private short[][] depths = new short[0][];   // Depth of node in search tree
+    private short[][] heuristics = new short[0][];
+    private boolean[][] closed = new boolean[0][];
+
+    private int size;
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the stored states
+     */
+    public NodeStore(int boardSize) {
+        this.boardSize = boardSize;
+        this.extraWords = State.wordCount(boardSize) - 1;
+    }
+
+    /**
+     * @return  Number of nodes in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Store a path found by a search which keeps no node of its own for
+     * every state on the path.
+     *
+     * @param initial    Initial state
+     * @param ops        Operators from the initial state to the goal
+     * @param heuristic  Heuristic of the nodes, or null for the number of
+     *                   moves left on the path
+     * @param goal       Goal state
+     * @return  Goal node of the path, with back pointers towards the
+     *          initial state
+     */
+    static Node path(State initial, State.Operator[] ops, Heuristic heuristic, State goal) {
+        NodeStore nodes = new NodeStore(initial.getBoardSize());
+        State s = initial;
+        int n = nodes.add(s, NO_PARENT, null, (heuristic != null) ? heuristic.h(s, goal) : (short) ops.length);
+        for (int g = 0; g < ops.length; g++) {
+            State next = s.move(ops[g]);
+            short h = (heuristic != null) ? heuristic.h(next, s, nodes.getHeuristic(n), goal) : (short) (ops.length - g - 1);
+            n = nodes.add(next, n, ops[g], h);
+            s = next;
+        }
+        assert s.equals(goal);
+        return new Node(nodes, n);
+    }
+
+    /**
+     * @param state   Puzzle state associated with the node
+     * @param parent  Index of the parent node, or NO_PARENT for a root node
+     * @param op      Operation that led to the node, or null for a root node
+     * @param h       Heuristic for node state
+     * @return  Index of the new node
+     */
+    public int add(State state, int parent, State.Operator op, short h) {
+        if ((size & CHUNK_MASK) == 0)
+            addChunk();
+
+        int index = size++;
+        int chunk = index >>> CHUNK_BITS;
+        int offset = index & CHUNK_MASK;
+        if (extraWords == 0) {
+            states[chunk][offset] = state.getPacked();
+        } else {
+            states[chunk][offset] = state.getWord(0);
+            for (int i = 0; i < extraWords; i++)
+                wideStates[chunk][offset*extraWords + i] = state.getWord(i + 1);
+        }
+        blanks[chunk][offset] = (byte) state.getBlank();
+        parents[chunk][offset] = parent;
+        ops[chunk][offset] = (op == null) ? NO_OP : (byte) op.ordinal();
+        // Set root node depth to 0, and child node depth to
+        // parent depth + 1
+        depths[chunk][offset] = (parent == NO_PARENT) ? 0 : (short) (getDepth(parent) + 1);
+        heuristics[chunk][offset] = h;
+        return index;
+    }
+
+    private void addChunk() {
+        int chunks = states.length + 1;
+        states = Arrays.copyOf(states, chunks);
+        wideStates = Arrays.copyOf(wideStates, chunks);
+        blanks = Arrays.copyOf(blanks, chunks);
+        parents = Arrays.copyOf(parents, chunks);
+        ops = Arrays.copyOf(ops, chunks);
+        depths = Arrays.copyOf(depths, chunks);
+        heuristics = Arrays.copyOf(heuristics, chunks);
+        closed = Arrays.copyOf(closed, chunks);
+
+        states[chunks - 1] = new long[CHUNK_SIZE];
+        wideStates[chunks - 1] = new long[CHUNK_SIZE*extraWords];
+        blanks[chunks - 1] = new byte[CHUNK_SIZE];
+        parents[chunks - 1] = new int[CHUNK_SIZE];
+        ops[chunks - 1] = new byte[CHUNK_SIZE];
+        depths[chunks - 1] = new short[CHUNK_SIZE];
+        heuristics[chunks - 1] = new short[CHUNK_SIZE];
+        closed[chunks - 1] = new boolean[CHUNK_SIZE];
+    }
+
+    /**
+     * @param index  Node index
+     * @return  Game state of the node
+     */
+    public State getState(int index) {
+        int chunk = index >>> CHUNK_BITS;
+        int offset = index & CHUNK_MASK;
+        if (extraWords == 0)
+            return new State(boardSize, states[chunk][offset], blanks[chunk][offset]);
+
+        long[] words = new long[extraWords + 1];
+        words[0] = states[chunk][offset];
+        System.arraycopy(wideStates[chunk], offset*extraWords, words, 1, extraWords);
+        return new State(boardSize, words, blanks[chunk][offset]);
+    }
+
+    /**
+     * @param index  Node index
+     * @return  Packed game state of the node, for boards up to 4x4
+     */
+    public long getPacked(int index) {
+        return states[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index  Node index
+     * @return  Index of the parent node, or NO_PARENT for a root node
+     */
+    public int getParent(int index) {
+        return parents[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index   Node index
+     * @param parent  Index of the new parent node
+     */
+    public void setParent(int index, int parent) {
+        parents[index >>> CHUNK_BITS][index & CHUNK_MASK] = parent;
+    }
+
+    /**
+     * @param index  Node index
+     * @return  Operator that led to the node, or null for a root node
+     */
+    public State.Operator getOp(int index) {
+        byte op = ops[index >>> CHUNK_BITS][index & CHUNK_MASK];
+        return (op == NO_OP) ? null : OPERATORS[op];
+    }
+
+    /**
+     * @param index  Node index
+     * @param op     Operator that led to the node
+     */
+    public void setOp(int index, State.Operator op) {
+        ops[index >>> CHUNK_BITS][index & CHUNK_MASK] = (byte) op.ordinal();
+    }
+
+    /**
+     * @param index  Node index
+     * @return  Tree depth
+     */
+    public short getDepth(int index) {
+        return depths[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index  Node index
+     * @param depth  Tree depth
+     */
+    public void setDepth(int index, short depth) {
+        depths[index >>> CHUNK_BITS][index & CHUNK_MASK] = depth;
+    }
+
+    /**
+     * @param index  Node index
+     * @return  Computed heuristic for node state
+     */
+    public short getHeuristic(int index) {
+        return heuristics[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index      Node index
+     * @param heuristic  Heuristic for node state
+     */
+    public void setHeuristic(int index, short heuristic) {
+        heuristics[index >>> CHUNK_BITS][index & CHUNK_MASK] = heuristic;
+    }
+
+    /**
+     * @param index  Node index
+     * @return  Tree depth plus heuristic
+     */
+    public int getFScore(int index) {
+        return getDepth(index) + getHeuristic(index);
+    }
+
+    /**
+     * @param index  Node index
+     * @return  MM priority of the node
+     */
+    public int getPriority(int index) {
+        // MM / MMε
+        int depth = getDepth(index);
+        return Math.max(2*depth, depth + getHeuristic(index));
+    }
+
+    /**
+     * @param index  Node index
+     * @return  True if the node is in the closed set
+     */
+    public boolean isClosed(int index) {
+        return closed[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index   Node index
+     * @param closed  True if the node moved to the closed set
+     */
+    public void setClosed(int index, boolean closed) {
+        this.closed[index >>> CHUNK_BITS][index & CHUNK_MASK] = closed;
+    }
+}
@@ -0,0 +1,256 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Iterative deepening A* with the subtrees below a fixed depth searched in
+ * parallel. Each iteration first expands the top of the tree down to
+ * FRONTIER_DEPTH, and every board reached there within the f bound becomes
+ * a ForkJoin task running the bounded depth-first search of IDAStarSearch
+ * on its own board. Idle pool threads steal the tasks not yet started, so
+ * subtrees of very different sizes still keep every thread busy.
+ *
+ * The tasks share the lowest f above the bound, which becomes the next
+ * bound, and a flag set by the first task to reach the goal which makes
+ * the other tasks return early. Every path found within the bound of the
+ * first iteration that finds one has a length equal to that bound, so any
+ * of them is optimal.
+ *
+ * Each task fills in metrics of its own, which are added up once the
+ * iteration is over.
+ */
+public class ParallelIDAStarSearch {
+
+    // Depth of the boards searched by separate tasks
+    private static final int FRONTIER_DEPTH = 8;
+
+    private static final State.Operator[] OPERATORS = State.Operator.values();
+
+    private final State goal;
+    private final Heuristic heuristic;
+
+    // Filled in by the thread expanding the frontier
+    private final SearchMetrics metrics;
+
+    // Shared by the tasks of the current iteration
+    private final AtomicInteger nextBound = new AtomicInteger();
+    private final AtomicBoolean found = new AtomicBoolean();
+
+    // Operator ordinals from the initial state to the goal
+    private volatile byte[] solution;
+
+    /**
+     * @param goal     Goal state
+     * @param config   Solver settings
+     * @param metrics  Metrics filled in during the search
+     */
+    private ParallelIDAStarSearch(State goal, SolverConfig config, SearchMetrics metrics) {
+        this.goal = goal;
+        this.heuristic = config.getHeuristic();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Solve n-puzzle using IDA* search Algorithm, searching the subtrees of
+     * each iteration on config.getThreads() threads
+     *
+     * @param initial initial state
+     * @param goal    goal state
+     * @param config  solver settings
+     * @return the result, with the goal node which includes a back
+     *         pointer towards the initial state.
+     */
+    public static SearchResult ParallelIDAStarSolve(State initial, State goal, SolverConfig config) {
+        return ParallelIDAStarSolve(initial, goal, config, SearchMetrics.of("parallel IDA*", config));
+    }
+
+    /**
+     * Solve n-puzzle using IDA* search Algorithm, searching the subtrees of
+     * each iteration on config.getThreads() threads
+     *
+     * @param initial initial state
+     * @param goal    goal state
+     * @param config  solver settings
+     * @param metrics metrics filled in during the search
+     * @return the result, with the goal node which includes a back
+     *         pointer towards the initial state.
+     */
+    public static SearchResult ParallelIDAStarSolve(State initial, State goal, SolverConfig config,
+                                                    SearchMetrics metrics) {
+        ParallelIDAStarSearch search = new ParallelIDAStarSearch(goal, config, metrics);
+        ForkJoinPool pool = new ForkJoinPool(config.getThreads());
+        try {
+            int h = config.getHeuristic().h(initial, goal);
+            int iterations = 0;
+            int subtrees = 0;
+
+            // Deepen the f bound to the lowest f which exceeded it
+            for (int bound = h; bound != Integer.MAX_VALUE; ) {
+                iterations++;
+                search.nextBound.set(Integer.MAX_VALUE);
+
+                List<Subtree> frontier = new ArrayList<Subtree>();
+                search.expandFrontier(initial, 0, h, bound, IDAStarSearch.NO_OP, new byte[FRONTIER_DEPTH], frontier);
+                if (search.solution == null) {
+                    subtrees = frontier.size();
+                    pool.invoke(new Frontier(frontier));
+                    for (Subtree subtree : frontier)
+                        metrics.add(subtree.metrics);
+                }
+
+                if (search.solution != null) {
+                    metrics.met(true);
+                    metrics.setSolutionLength(bound);
+                    return SearchResult.solved("Found path: depth:" + bound + "\n"
+                            + "Nodes Generated: " + metrics.getGenerated() + " (" + iterations + " iterations, "
+                            + subtrees + " subtrees on " + config.getThreads() + " threads)\n",
+                            search.toNode(initial, bound));
+                }
+                bound = search.nextBound.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return SearchResult.noSolution("");
+    }
+
+    /**
+     * Depth-first search of the top of the tree, collecting the boards at
+     * FRONTIER_DEPTH within the bound.
+     *
+     * @param s         Current board
+     * @param g         Depth of the current board
+     * @param h         Heuristic of the current board
+     * @param bound     Largest f to expand in this iteration
+     * @param lastOp    Ordinal of the operator that led to the current
+     *                  board, or NO_OP at the root
+     * @param prefix    Operator ordinals from the root to the current board
+     * @param frontier  Subtrees to search
+     */
+    private void expandFrontier(State s, int g, int h, int bound, int lastOp, byte[] prefix, List<Subtree> frontier) {
+        int f = g + h;
+        if (f > bound) {
+            nextBound.accumulateAndGet(f, Math::min);
+            return;
+        }
+        if (s.equals(goal)) {
+            solution = Arrays.copyOf(prefix, g);
+            return;
+        }
+        if (g == FRONTIER_DEPTH) {
+            frontier.add(new Subtree(s, g, h, bound, lastOp, Arrays.copyOf(prefix, g)));
+            return;
+        }
+        metrics.expanded(SearchMetrics.FWD);
+
+        for (State.Operator op : OPERATORS) {
+            // Don't undo the move that led here
+            if (lastOp != IDAStarSearch.NO_OP && op.reverse().ordinal() == lastOp)
+                continue;
+            State child = s.move(op);
+            if (child == null)
+                continue;
+            metrics.generated(SearchMetrics.FWD);
+
+            prefix[g] = (byte) op.ordinal();
+            long start = metrics.heuristicStart();
+            int childH = heuristic.h(child, s, (short) h, goal);
+            metrics.heuristicEnd(start);
+            expandFrontier(child, g + 1, childH, bound, op.ordinal(), prefix, frontier);
+            if (solution != null)
+                return;
+        }
+    }
+
+    /**
+     * @param initial  Initial state
+     * @param depth    Solution depth
+     * @return  Goal node of the found path, with back pointers towards the
+     *          initial state
+     */
+    private Node toNode(State initial, int depth) {
+        State.Operator[] ops = new State.Operator[depth];
+        for (int g = 0; g < depth; g++)
+            ops[g] = OPERATORS[solution[g]];
+        return NodeStore.path(initial, ops, heuristic, goal);
+    }
+
+    /**
+     * Forks a task for every subtree of the frontier and waits for them.
+     */
+    private static class Frontier extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Subtree> subtrees;
+
+        /**
+         * @param subtrees  Subtrees to search
+         */
+        Frontier(List<Subtree> subtrees) {
+            this.subtrees = subtrees;
+        }
+
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(subtrees);
+        }
+    }
+
+    /**
+     * Bounded depth-first search of the subtree below one frontier board.
+     */
+    private class Subtree extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final State root;
+        private final int g;
+        private final int h;
+        private final int bound;
+        private final int lastOp;
+        private final byte[] prefix;
+
+        // Filled in by the thread running the task
+        private final SearchMetrics metrics = ParallelIDAStarSearch.this.metrics.forThread();
+
+        /**
+         * @param root    Frontier board
+         * @param g       Depth of the board
+         * @param h       Heuristic of the board
+         * @param bound   Largest f to expand in this iteration
+         * @param lastOp  Ordinal of the operator that led to the board
+         * @param prefix  Operator ordinals from the initial state to the board
+         */
+        Subtree(State root, int g, int h, int bound, int lastOp, byte[] prefix) {
+            this.root = root;
+            this.g = g;
+            this.h = h;
+            this.bound = bound;
+            this.lastOp = lastOp;
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected void compute() {
+            if (found.get())
+                return;
+
+            IDAStarSearch search = new IDAStarSearch(root, goal, heuristic, found, metrics);
+            int t = search.search(g, h, bound, lastOp);
+
+            if (t != IDAStarSearch.FOUND) {
+                nextBound.accumulateAndGet(t, Math::min);
+            } else if (found.compareAndSet(false, true)) {
+                byte[] path = Arrays.copyOf(search.getPath(), bound);
+                System.arraycopy(prefix, 0, path, 0, g);
+                solution = path;
+            }
+        }
+    }
+}
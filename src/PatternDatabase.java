@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Additive disjoint pattern database heuristic, memory-mapped from a file
+ * written by PatternDatabaseGenerator.
+ *
+ * The tiles are partitioned into groups, and for every placement of a
+ * group's tiles the file stores the number of moves of those tiles needed
+ * to bring them to their goal cells, with the other tiles
+ * indistinguishable and the blank anywhere. Only moves of a group's own
+ * tiles are counted, so the values of the groups can be added. Since the
+ * blank is left out of the lookup the heuristic is admissible but not
+ * consistent: one move can lower it by more than one.
+ *
+ * The tables are built for the standard goal (tile t at cell t-1, blank in
+ * the last cell). For any other goal the tiles are relabelled by their goal
+ * cell, so tile x is looked up as the tile whose standard cell is x's goal
+ * cell. That is exact when the goal has its blank in the last cell; for
+ * other goals (such as the start state in the backward direction) the group
+ * holding the tile whose standard cell is the goal's blank cell falls back
+ * to the Manhattan distance of its tiles, and so does the tile whose goal
+ * is the last cell.
+ *
+ * Boards larger than 4x4 are read through State.getTile. Placements are
+ * ranked with int masks of the cells, so boards are limited to 5x5.
+ *
+ * File layout: magic, board size and group count, then for each group its
+ * tile count and tiles, then for each group one nibble per placement. A
+ * nibble holds (moves - Manhattan distance of the group) / 2, which is
+ * always a whole number since each move changes the Manhattan distance of
+ * the group by one.
+ */
+public class PatternDatabase implements Heuristic {
+
+    static final int MAGIC = 0x50444231;   // "PDB1"
+
+    // Largest board whose cells fit in an int mask
+    static final int MAX_BOARD_SIZE = 5;
+
+    // Largest stored (moves - Manhattan distance) / 2
+    static final int MAX_VALUE = 15;
+
+    private final int boardSize;
+    private final int[][] groups;          // Tiles of each group
+    private final long[] offsets;          // Offset of each group's table
+    private final MappedByteBuffer buffer;
+
+    // Scratch arrays of h, cellOf and positions. The database is shared by
+    // the solver threads, so each thread has its own.
+    private final ThreadLocal<int[][]> scratch;
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the board
+     * @param groups     Tiles of each group
+     * @param offsets    Offset of each group's table in the buffer
+     * @param buffer     Mapped file
+     */
+    private PatternDatabase(int boardSize, int[][] groups, long[] offsets, MappedByteBuffer buffer) {
+        this.boardSize = boardSize;
+        this.groups = groups;
+        this.offsets = offsets;
+        this.buffer = buffer;
+        int cells = boardSize*boardSize;
+        this.scratch = ThreadLocal.withInitial(() -> new int[][]{new int[cells], new int[cells]});
+    }
+
+    /**
+     * Memory-maps a pattern database file.
+     *
+     * @param file  Path of a file written by PatternDatabaseGenerator
+     * @return  Pattern database backed by the mapped file
+     * @throws IOException  If the file cannot be read or is not a pattern
+     *                      database
+     */
+    public static PatternDatabase load(String file) throws IOException {
+        Path path = Paths.get(file);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.limit() < 12 || buffer.getInt(0) != MAGIC)
+            throw new IOException("'" + file + "' is not a pattern database");
+        int boardSize = buffer.getInt(4);
+        if (boardSize < 2 || boardSize > MAX_BOARD_SIZE)
+            throw new IOException("'" + file + "' is truncated or corrupt");
+        int[][] groups = new int[buffer.getInt(8)][];
+        int position = 12;
+        for (int g = 0; g < groups.length; g++) {
+            groups[g] = new int[buffer.getInt(position)];
+            position += 4;
+            for (int i = 0; i < groups[g].length; i++) {
+                groups[g][i] = buffer.getInt(position);
+                position += 4;
+            }
+        }
+
+        long[] offsets = new long[groups.length];
+        long offset = position;
+        for (int g = 0; g < groups.length; g++) {
+            offsets[g] = offset;
+            offset += tableBytes(boardSize*boardSize, groups[g].length);
+        }
+        if (offset != buffer.limit())
+            throw new IOException("'" + file + "' is truncated or corrupt");
+
+        return new PatternDatabase(boardSize, groups, offsets, buffer);
+    }
+
+    /**
+     * @return  Number of rows (and columns) of the board
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /* (non-Javadoc)
+     * @see Heuristic#h(int, long, Position[])
+     */
+    @Override
+    public int h(int boardSize, long packed, Position[] correctPos) {
+        if (boardSize != this.boardSize)
+            throw new IllegalArgumentException("Pattern database is for board size " + this.boardSize);
+        return h(null, packed, correctPos);
+    }
+
+    /* (non-Javadoc)
+     * @see Heuristic#h(State, Position[])
+     */
+    @Override
+    public int h(State s, Position[] correctPos) {
+        if (s.getBoardSize() != this.boardSize)
+            throw new IllegalArgumentException("Pattern database is for board size " + this.boardSize);
+        return h(s, 0, correctPos);
+    }
+
+    /**
+     * @param s           Board larger than 4x4, or null to read the packed
+     *                    board
+     * @param packed      Packed game board, if s is null
+     * @param correctPos  Position of each tile in the goal state
+     * @return  Heuristic distance from goal state
+     */
+    private int h(State s, long packed, Position[] correctPos) {
+        int cells = boardSize*boardSize;
+        int lastCell = cells - 1;
+        int h = 0;
+
+        int[][] arrays = scratch.get();
+
+        // cellOf[k] is the cell of the tile relabelled as standard tile k
+        int[] cellOf = arrays[0];
+        for (int k = 0; k < cells; k++)
+            cellOf[k] = -1;
+        for (int cell = 0; cell < cells; cell++) {
+            int tile = (s != null) ? s.getTile(cell) : (int) (packed >>> (cell << 2)) & 0xF;
+            if (tile == 0)
+                continue;
+            Position goal = correctPos[tile];
+            int goalCell = goal.row*boardSize + goal.col;
+            if (goalCell == lastCell)
+                h += Math.abs(goal.row - cell / boardSize) + Math.abs(goal.col - cell % boardSize);
+            else
+                cellOf[goalCell + 1] = cell;
+        }
+
+        int[] positions = arrays[1];
+        for (int g = 0; g < groups.length; g++) {
+            int[] tiles = groups[g];
+            int manhattan = 0;
+            boolean complete = true;
+            for (int i = 0; i < tiles.length; i++) {
+                int cell = cellOf[tiles[i]];
+                if (cell < 0) {
+                    complete = false;
+                    continue;
+                }
+                positions[i] = cell;
+                manhattan += Math.abs(cell / boardSize - (tiles[i] - 1) / boardSize)
+                           + Math.abs(cell % boardSize - (tiles[i] - 1) % boardSize);
+            }
+            h += manhattan;
+            if (complete)
+                h += 2*lookup(g, PermutationRank.rank(positions, tiles.length, cells));
+        }
+        return h;
+    }
+
+    /**
+     * @param g      Group
+     * @param index  Rank of the placement of the group's tiles
+     * @return  Stored nibble for the placement
+     */
+    private int lookup(int g, long index) {
+        byte b = buffer.get((int) (offsets[g] + (index >>> 1)));
+        return (b >>> ((int) (index & 1) << 2)) & 0xF;
+    }
+
+    /**
+     * @param cells  Number of cells on the board
+     * @param k      Number of tiles in the group
+     * @return  Size of the group's nibble-packed table in bytes
+     */
+    static long tableBytes(int cells, int k) {
+        return (PermutationRank.entries(cells, k) + 1) / 2;
+    }
+}
@@ -0,0 +1,287 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Builds additive disjoint pattern databases for the standard goal state
+ * with a breadth-first search over the placements of each group's tiles
+ * and the blank, and writes them in the nibble-packed format read by
+ * PatternDatabase.
+ */
+public class PatternDatabaseGenerator {
+
+    private static final byte UNVISITED = -1;
+
+    // Predefined partitions of the tiles
+    private static final int[][] PARTITION_8_44 = {{1, 2, 3, 4}, {5, 6, 7, 8}};
+    private static final int[][] PARTITION_15_663 = {{1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4}};
+
+    /**
+     * Pattern database generator.
+     *
+     * @param args Puzzle size, output file, and optionally the partition:
+     *             "663" for the 15-puzzle, or groups of tiles such as
+     *             "1,2,3,4/5,6,7,8". Groups of at most six tiles fit on the
+     *             15-puzzle.
+     */
+    public static void main(String args[]) {
+        if (args.length < 2) {
+            System.out.println("Usage: PatternDatabaseGenerator <size> <output file> [partition]");
+            System.exit(1);
+        }
+
+        int size = 0;
+        try {
+            size = Integer.parseInt(args[0]);
+        } catch (Exception e) {
+            System.out.println("Couldn't parse size");
+            System.exit(1);
+        }
+
+        int[][] groups;
+        try {
+            groups = partition(size, args.length > 2 ? args[2] : null);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        try {
+            generate(size, groups, args[1]);
+        } catch (IOException e) {
+            System.out.println("An error occurred while writing to output file");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param size  Puzzle size
+     * @param spec  Partition name or groups of tiles, or null for the default
+     * @return  Tiles of each group
+     */
+    static int[][] partition(int size, String spec) {
+        if (size < 2 || size > PatternDatabase.MAX_BOARD_SIZE)
+            throw new IllegalArgumentException("Puzzle size must be between 2 and " + PatternDatabase.MAX_BOARD_SIZE);
+        int[][] groups;
+        if (spec == null)
+            groups = (size == 3) ? PARTITION_8_44 : (size == 4) ? PARTITION_15_663 : null;
+        else if (spec.equals("663") && size == 4)
+            groups = PARTITION_15_663;
+        else if (spec.equals("44") && size == 3)
+            groups = PARTITION_8_44;
+        else {
+            String[] parts = spec.split("/");
+            groups = new int[parts.length][];
+            for (int g = 0; g < parts.length; g++) {
+                String[] tiles = parts[g].split(",");
+                groups[g] = new int[tiles.length];
+                for (int i = 0; i < tiles.length; i++) {
+                    try {
+                        groups[g][i] = Integer.parseInt(tiles[i].trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid partition '" + spec + "'");
+                    }
+                }
+            }
+        }
+        if (groups == null)
+            throw new IllegalArgumentException("No default partition for size " + size);
+
+        // Every tile must belong to exactly one group
+        boolean[] seen = new boolean[size*size];
+        int count = 0;
+        for (int[] group : groups) {
+            for (int tile : group) {
+                if (tile < 1 || tile >= size*size || seen[tile])
+                    throw new IllegalArgumentException("Partition must contain each tile 1.." + (size*size - 1) + " once");
+                seen[tile] = true;
+                count++;
+            }
+        }
+        if (count != size*size - 1)
+            throw new IllegalArgumentException("Partition must contain each tile 1.." + (size*size - 1) + " once");
+        return groups;
+    }
+
+    /**
+     * @param size    Puzzle size
+     * @param groups  Tiles of each group
+     * @param file    Output file
+     * @throws IOException  If the file cannot be written
+     */
+    public static void generate(int size, int[][] groups, String file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(PatternDatabase.MAGIC);
+            out.writeInt(size);
+            out.writeInt(groups.length);
+            for (int[] group : groups) {
+                out.writeInt(group.length);
+                for (int tile : group)
+                    out.writeInt(tile);
+            }
+
+            for (int[] group : groups) {
+                System.out.println("Generating pattern database for tiles " + Arrays.toString(group));
+                byte[] moves = search(size, group);
+                writeNibbles(size, group, moves, out);
+            }
+        }
+    }
+
+    /**
+     * Breadth-first search from the goal over the abstract states of a
+     * group: the placement of the group's tiles and the cell of the blank,
+     * with the other tiles indistinguishable. Moving the blank into a cell
+     * free of the group's tiles costs nothing, and sliding one of the
+     * group's tiles into the blank costs one move, so the search is a 0-1
+     * BFS in layers of cost, each layer first flooding the blank through
+     * the free cells. A placement's number of moves is its least cost over
+     * all cells of the blank.
+     *
+     * @param size   Puzzle size
+     * @param group  Tiles of the group
+     * @return  Number of moves for each placement, indexed by rank
+     */
+    private static byte[] search(int size, int[] group) {
+        int cells = size*size;
+        int k = group.length;
+        long entries = PermutationRank.entries(cells, k);
+        if (entries*cells > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Group " + Arrays.toString(group) + " is too large");
+
+        // Cost of each (placement, blank) state, indexed by rank*cells+blank,
+        // read as unsigned so UNVISITED is above every cost
+        byte[] costs = new byte[(int) (entries*cells)];
+        Arrays.fill(costs, UNVISITED);
+        byte[] moves = new byte[(int) entries];
+        Arrays.fill(moves, UNVISITED);
+
+        // The goal is the group's tiles on their cells with the blank on any
+        // other cell, since the goal's blank is not always in the last cell
+        // once PatternDatabase relabels the tiles
+        int[] positions = new int[k];
+        boolean[] goalCell = new boolean[cells];
+        for (int i = 0; i < k; i++) {
+            positions[i] = group[i] - 1;
+            goalCell[positions[i]] = true;
+        }
+        int goal = (int) PermutationRank.rank(positions, k, cells);
+        int[] layer = new int[cells - k];
+        int layerSize = 0;
+        for (int blank = 0; blank < cells; blank++) {
+            if (goalCell[blank])
+                continue;
+            costs[goal*cells + blank] = 0;
+            layer[layerSize++] = goal*cells + blank;
+        }
+
+        int[] tileAt = new int[cells];   // Index in group of the tile on each cell, or -1
+        int[] stack = new int[cells];    // Blank cells left to flood from
+        for (int cost = 0; layerSize > 0; cost++) {
+            int[] next = new int[Math.max(16, layerSize)];
+            int nextSize = 0;
+            for (int l = 0; l < layerSize; l++) {
+                // States reached again at a lower cost were flooded already
+                if ((costs[layer[l]] & 0xFF) != cost)
+                    continue;
+                int placement = layer[l] / cells;
+                PermutationRank.unrank(placement, k, cells, positions);
+                Arrays.fill(tileAt, -1);
+                for (int i = 0; i < k; i++)
+                    tileAt[positions[i]] = i;
+                if (moves[placement] == UNVISITED)
+                    moves[placement] = (byte) cost;
+
+                int top = 0;
+                stack[top++] = layer[l] % cells;
+                while (top > 0) {
+                    int blank = stack[--top];
+                    int row = blank / size;
+                    int col = blank % size;
+                    for (int dir = 0; dir < 4; dir++) {
+                        int target;
+                        if (dir == 0 && row > 0)
+                            target = blank - size;
+                        else if (dir == 1 && row < size - 1)
+                            target = blank + size;
+                        else if (dir == 2 && col > 0)
+                            target = blank - 1;
+                        else if (dir == 3 && col < size - 1)
+                            target = blank + 1;
+                        else
+                            continue;
+
+                        int i = tileAt[target];
+                        if (i < 0) {
+                            // The blank moves for free within the placement
+                            int index = placement*cells + target;
+                            if ((costs[index] & 0xFF) > cost) {
+                                costs[index] = (byte) cost;
+                                stack[top++] = target;
+                            }
+                            continue;
+                        }
+
+                        // Tile i slides into the blank, which takes its cell
+                        positions[i] = blank;
+                        int index = (int) PermutationRank.rank(positions, k, cells)*cells + target;
+                        positions[i] = target;
+                        if (costs[index] != UNVISITED)
+                            continue;
+                        costs[index] = (byte) (cost + 1);
+                        if (nextSize == next.length)
+                            next = Arrays.copyOf(next, 2*next.length);
+                        next[nextSize++] = index;
+                    }
+                }
+            }
+            layer = next;
+            layerSize = nextSize;
+        }
+        return moves;
+    }
+
+    /**
+     * @param size   Puzzle size
+     * @param group  Tiles of the group
+     * @param moves  Number of moves for each placement
+     * @param out    Output stream
+     * @throws IOException  If the stream cannot be written
+     */
+    private static void writeNibbles(int size, int[] group, byte[] moves, DataOutputStream out) throws IOException {
+        int[] positions = new int[group.length];
+        byte[] buffer = new byte[1 << 16];
+        int length = 0;
+        for (int index = 0; index < moves.length; index += 2) {
+            int low = excess(size, group, index, moves[index], positions);
+            int high = (index + 1 < moves.length) ? excess(size, group, index + 1, moves[index + 1], positions) : 0;
+            buffer[length++] = (byte) (low | (high << 4));
+            if (length == buffer.length) {
+                out.write(buffer, 0, length);
+                length = 0;
+            }
+        }
+        out.write(buffer, 0, length);
+    }
+
+    /**
+     * @param size       Puzzle size
+     * @param group      Tiles of the group
+     * @param index      Rank of a placement
+     * @param moves      Number of moves for the placement
+     * @param positions  Scratch array for the placement
+     * @return  (moves - Manhattan distance) / 2, capped to fit a nibble
+     */
+    private static int excess(int size, int[] group, int index, int moves, int[] positions) {
+        PermutationRank.unrank(index, group.length, size*size, positions);
+        int manhattan = 0;
+        for (int i = 0; i < group.length; i++) {
+            int goal = group[i] - 1;
+            manhattan += Math.abs(positions[i] / size - goal / size) + Math.abs(positions[i] % size - goal % size);
+        }
+        return Math.min(PatternDatabase.MAX_VALUE, (moves - manhattan) / 2);
+    }
+}
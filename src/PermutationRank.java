@@ -0,0 +1,152 @@
+/**
+ * Dense ranking of boards, and of placements of some of their tiles, in the
+ * falling factorial number system (a Lehmer code). Ranks index the tables
+ * of the pattern databases, the distance table and the rank-indexed state
+ * sets.
+ *
+ * A board is ranked by the cells of all its tiles but the last two. The
+ * cells of those two are then known, and only one of their two orders is
+ * reachable from a given board, since swapping two tiles changes the parity
+ * of the permutation but not the cell of the blank. The boards reachable
+ * from any one board thus have distinct ranks in [0, cells!/2).
+ */
+public final class PermutationRank {
+
+    private PermutationRank() {
+    }
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the board
+     * @return  Number of boards reachable from any one board
+     */
+    public static long states(int boardSize) {
+        int cells = boardSize*boardSize;
+        return entries(cells, cells - 2);
+    }
+
+    /**
+     * @param s  Board to rank
+     * @return  Rank of the board, in [0, states(boardSize))
+     */
+    public static long rank(State s) {
+        return rank(s.getBoardSize(), s.getPacked());
+    }
+
+    /**
+     * Ranks a packed board without allocating.
+     *
+     * @param boardSize  Number of rows (and columns) of the board
+     * @param packed     Packed game board
+     * @return  Rank of the board, in [0, states(boardSize))
+     */
+    public static long rank(int boardSize, long packed) {
+        int cells = boardSize*boardSize;
+
+        // Cell of each tile, packed 4 bits per tile
+        long cellOf = 0;
+        for (int cell = 0; cell < cells; cell++)
+            cellOf |= (long) cell << (((packed >>> (cell << 2)) & 0xF) << 2);
+
+        long index = 0;
+        int used = 0;
+        for (int tile = 0; tile < cells - 2; tile++) {
+            int p = (int) (cellOf >>> (tile << 2)) & 0xF;
+            // Number of free cells below p
+            int r = p - Integer.bitCount(used & ((1 << p) - 1));
+            index = index*(cells - tile) + r;
+            used |= 1 << p;
+        }
+        return index;
+    }
+
+    /**
+     * @param index      Rank of a board
+     * @param reference  Board from which the ranked board is reachable
+     * @return  Board with the given rank reachable from the reference
+     */
+    public static State unrank(long index, State reference) {
+        int boardSize = reference.getBoardSize();
+        int cells = boardSize*boardSize;
+        int[] positions = new int[cells];
+        unrank(index, cells - 2, cells, positions);
+
+        // The last two tiles take the two free cells
+        int used = 0;
+        for (int tile = 0; tile < cells - 2; tile++)
+            used |= 1 << positions[tile];
+        int first = Integer.numberOfTrailingZeros(~used);
+        int second = Integer.numberOfTrailingZeros(~(used | (1 << first)));
+
+        long packed = 0;
+        for (int tile = 1; tile < cells - 2; tile++)
+            packed |= (long) tile << (positions[tile] << 2);
+        long lastTwo = ((long) (cells - 2) << (first << 2)) | ((long) (cells - 1) << (second << 2));
+        State s = new State(boardSize, packed | lastTwo, positions[0]);
+        if (!s.isSolvable(reference)) {
+            lastTwo = ((long) (cells - 2) << (second << 2)) | ((long) (cells - 1) << (first << 2));
+            s = new State(boardSize, packed | lastTwo, positions[0]);
+        }
+        return s;
+    }
+
+    /**
+     * Ranks a placement of k tiles on distinct cells in the falling
+     * factorial number system, giving a dense index in
+     * [0, cells!/(cells-k)!).
+     *
+     * @param positions  Cell of each tile
+     * @param k          Number of tiles
+     * @param cells      Number of cells on the board
+     * @return  Rank of the placement
+     */
+    static long rank(int[] positions, int k, int cells) {
+        long index = 0;
+        int used = 0;
+        for (int i = 0; i < k; i++) {
+            int p = positions[i];
+            // Number of free cells below p
+            int r = p - Integer.bitCount(used & ((1 << p) - 1));
+            index = index*(cells - i) + r;
+            used |= 1 << p;
+        }
+        return index;
+    }
+
+    /**
+     * @param index      Rank of a placement
+     * @param k          Number of tiles
+     * @param cells      Number of cells on the board
+     * @param positions  Array to receive the cell of each tile
+     */
+    static void unrank(long index, int k, int cells, int[] positions) {
+        int[] digits = new int[k];
+        for (int i = k - 1; i >= 0; i--) {
+            digits[i] = (int) (index % (cells - i));
+            index /= (cells - i);
+        }
+        int used = 0;
+        for (int i = 0; i < k; i++) {
+            // Find the digits[i]-th free cell
+            int p = -1;
+            for (int r = digits[i]; r >= 0; r--) {
+                p++;
+                while ((used & (1 << p)) != 0)
+                    p++;
+            }
+            positions[i] = p;
+            used |= 1 << p;
+        }
+    }
+
+    /**
+     * @param cells  Number of cells on the board
+     * @param k      Number of tiles placed
+     * @return  Number of placements of k tiles
+     */
+    static long entries(int cells, int k) {
+        long entries = 1;
+        for (int i = 0; i < k; i++)
+            entries *= cells - i;
+        return entries;
+    }
+}
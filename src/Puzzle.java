@@ -1,24 +1,61 @@
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class Puzzle {
 
+	// Instances read ahead of the one being written, per pool thread
+	private static final int MAX_PENDING_PER_THREAD = 2;
+
+	// Solution cache capacity when only a snapshot file is given
+	private static final int DEFAULT_CACHE_CAPACITY = 1 << 16;
+
+	// Names of the algorithms accepted by solve
+	static final String[] ALGORITHMS = {"bidirectional A*", "A*", "IDA*", "parallel IDA*", "HDA*", "MM", "concurrent MM", "MMf2f", "MMf2fEC", "external A*"};
+
+	// Algorithms which always find an optimal path, and may therefore use
+	// and fill the solution cache
+	private static final List<String> OPTIMAL_ALGORITHMS = Arrays.asList("IDA*", "parallel IDA*", "HDA*", "MM",
+			"concurrent MM", "MMf2f", "MMf2fEC", "external A*");
+
+	// Algorithms which also solve boards larger than 4x4, whose states take
+	// more than one long
+	private static final String[] WIDE_ALGORITHMS = {"bidirectional A*", "A*", "MM", "MMf2f", "MMf2fEC"};
+
 	/**
 	 * Tile Puzzle Solver. Code is based on https://github.com/yuvallb/15-puzzle-solver-MM-search
-	 * Can solve 8-puzzle and 15-puzzle.
+	 * Can solve puzzles from 2x2 to 8x8, the boards larger than 4x4 with
+	 * the algorithms which support them.
 	 *
-	 * @param args Puzzle size and input file with initial puzzle states
+	 * @param args Input file with initial puzzle states, puzzle size, and
+	 *             optionally "--pdb" followed by a pattern database file
+	 *             "--threads" followed by the number of jobs to solve in
+	 *             parallel, "--search-threads" followed by the number
+	 *             of worker threads of the parallel solvers,
+	 *             "--metrics" followed by a file to write the metrics of
+	 *             every search to, as JSON lines if the file name ends
+	 *             with ".json" or ".jsonl" and as CSV otherwise, and
+	 *             "--spill-dir" followed by the directory in which the
+	 *             external A* search keeps its files, and
+	 *             "--distance-table" followed by an 8-puzzle distance
+	 *             table file, to answer every instance from the table
+	 *             instead of running the searches, "--cache" followed by
+	 *             the number of solutions to keep for repeated and
+	 *             symmetric instances, and "--cache-file" followed by a
+	 *             file to load the cached solutions from and save them to
 	 */
 	public static void main(String args[]) {
 
-		// Initial states of puzzles to solve
-		List<State> initials = new ArrayList<State>();
-
 		if (args.length < 2) {
 			System.out.println("Error: input is not valid");
 			System.exit(1);
@@ -32,135 +69,429 @@ public class Puzzle {
 			System.out.println("Couldn't parse size");
 		}
 
-		// Read input from file given on command line
-		Scanner s = null;
-		try {
-			s = new Scanner(new FileInputStream(args[0]));
-		} catch (FileNotFoundException e) {
-			System.out.println("Couldn't open input file '" + args[0] + "'");
+		// Optional arguments
+		PatternDatabase pdb = null;
+		int threads = 1;
+		int searchThreads = Runtime.getRuntime().availableProcessors();
+		String metricsFile = null;
+		Path spillDirectory = null;
+		DistanceTable table = null;
+		int cacheCapacity = 0;
+		String cacheFile = null;
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equals("--pdb") && i + 1 < args.length) {
+				// Load the pattern database
+				String file = args[++i];
+				try {
+					pdb = PatternDatabase.load(file);
+				} catch (IOException e) {
+					System.out.println("Couldn't load pattern database '" + file + "': " + e.getMessage());
+					System.exit(1);
+				}
+				if (pdb.getBoardSize() != size) {
+					System.out.println("Pattern database is for puzzle size " + pdb.getBoardSize());
+					System.exit(1);
+				}
+			} else if (args[i].equals("--threads") && i + 1 < args.length) {
+				try {
+					threads = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					threads = 0;
+				}
+				if (threads < 1) {
+					System.out.println("Couldn't parse number of threads");
+					System.exit(1);
+				}
+			} else if (args[i].equals("--search-threads") && i + 1 < args.length) {
+				try {
+					searchThreads = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					searchThreads = 0;
+				}
+				if (searchThreads < 1) {
+					System.out.println("Couldn't parse number of search threads");
+					System.exit(1);
+				}
+			} else if (args[i].equals("--metrics") && i + 1 < args.length) {
+				metricsFile = args[++i];
+			} else if (args[i].equals("--spill-dir") && i + 1 < args.length) {
+				spillDirectory = Paths.get(args[++i]);
+				if (!Files.isDirectory(spillDirectory)) {
+					System.out.println("Spill directory '" + spillDirectory + "' does not exist");
+					System.exit(1);
+				}
+			} else if (args[i].equals("--distance-table") && i + 1 < args.length) {
+				// Map the distance table
+				String file = args[++i];
+				try {
+					table = DistanceTable.load(file);
+				} catch (IOException e) {
+					System.out.println("Couldn't load distance table '" + file + "': " + e.getMessage());
+					System.exit(1);
+				}
+			} else if (args[i].equals("--cache") && i + 1 < args.length) {
+				try {
+					cacheCapacity = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					cacheCapacity = 0;
+				}
+				if (cacheCapacity < 1) {
+					System.out.println("Couldn't parse cache capacity");
+					System.exit(1);
+				}
+			} else if (args[i].equals("--cache-file") && i + 1 < args.length) {
+				cacheFile = args[++i];
+			} else {
+				System.out.println("Unknown argument '" + args[i] + "'");
+				System.exit(1);
+			}
+		}
+
+		// Goal state with the tiles in order and the blank last
+		if (size < 2 || size > State.MAX_BOARD_SIZE) {
+			System.out.println("Puzzle size must be between 2 and " + State.MAX_BOARD_SIZE);
 			System.exit(1);
 		}
-		while (s.hasNextLine()) {
-			String line = s.nextLine();
-			// Skip blank lines
-			if (line.isEmpty())
-				continue;
-			Scanner ss = new Scanner(line);
-			byte[][] board = new byte[size][size];
-			for (int i = 0; i < size; i++) {
-				for (int j = 0; j < size; j++) {
-					if (ss.hasNextInt()) {
-						board[i][j] = (byte) ss.nextInt();
-					} else {
-						System.out.println("Invalid input file");
-						System.exit(1);
-					}
-				}
+		State goal = State.standardGoal(size);
+		if (table != null && !table.getGoal().equals(goal)) {
+			System.out.println("Distance table is not for the " + (size*size - 1) + "-puzzle goal");
+			System.exit(1);
+		}
+
+		SolutionCache cache = null;
+		if (cacheFile != null) {
+			try {
+				cache = SolutionCache.load(cacheFile, (cacheCapacity > 0) ? cacheCapacity : DEFAULT_CACHE_CAPACITY);
+			} catch (IOException e) {
+				System.out.println("Couldn't load solution cache '" + cacheFile + "': " + e.getMessage());
+				System.exit(1);
 			}
-			ss.close();
-			initials.add(new State(board));
+		} else if (cacheCapacity > 0) {
+			cache = new SolutionCache(cacheCapacity);
 		}
-		s.close();
 
-		// Goal state for different puzzle sizes
-		State goal_15 = new State(new byte[][]{{1, 2, 3, 4}, {5, 6, 7, 8}, {9, 10, 11, 12}, {13, 14, 15, 0}});
-		State goal_8 = new State(new byte[][]{{1, 2, 3}, {4, 5, 6}, {7, 8, 0}});
+		String[] hueristics = (pdb == null)
+				? new String[]{"linearConflict", "manhattanDistance"}
+				: new String[]{"linearConflict", "manhattanDistance", "patternDatabase"};
 
-		State goal = null;
-		if (size == 4) {
-			goal = goal_15;
-		} else if (size == 3) {
-			goal = goal_8;
+		// Read input from file given on command line
+		BoardReader reader = null;
+		try {
+			reader = new BoardReader(args[0], size);
+		} catch (IOException e) {
+			System.out.println("Couldn't open input file '" + args[0] + "'");
+			System.exit(1);
 		}
 
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
 		try{
-            FileWriter myWriter = new FileWriter("results.txt");
+            // Results are written out on background threads, so neither
+            // the jobs nor this thread wait for the disk
+            ReportWriter myWriter = new ReportWriter("results.txt");
             myWriter.write("--------------------- Tile Puzzle Results ---------------------\n");
 
-            // Run solver on each test case
-            for (State initial : initials) {
-                System.out.println("Solving input: \n ");
-                System.out.println(initial + "\n========================\n");
-
-                myWriter.write("Initial state: \n" + initial + "\n========================\n");
-                String[] algorithms = {"bidirectional A*", "A*", "MM", "MMf2f", "MMf2fEC"};
-                String[] hueristics = {"linearConflict", "manhattanDistance"};
-
-                for (String alg : algorithms) {
-					myWriter.write("\n------------------------------------------------------\n");
-                    myWriter.write("Solving tile puzzle using " + alg + "\n------------------------------\n");
-					System.out.println("\n" + alg + "\n");
-                    switch (alg) {
-                        case "bidirectional A*":
-                            Config.f2fEndCondition = false;
-                            Config.f2f = false;
-                            break;
-                        case "A*":
-                            Config.f2fEndCondition = false;
-                            Config.f2f = false;
-							break;
-                        case "MM":
-                            Config.f2fEndCondition = false;
-                            Config.f2f = false;
-							break;
-                        case "MMf2f":
-                            Config.f2fEndCondition = false;
-                            Config.f2f = true;
-							break;
-                        case "MMf2fEC":
-                            Config.f2fEndCondition = true;
-                            Config.f2f = false;
-							break;
-                    }
-                    for (String hue : hueristics) {
-                        if (hue == "linearConflict")
-                            Config.LinearConflict = true;
-                        else
-                            Config.LinearConflict = false;
-						myWriter.write("Heuristic: " + hue + "\n------------------------------\n");
-                        solve(alg, initial, goal, myWriter);
-                        myWriter.write("\n------------------------------------------------------\n");
-                    }
-                }
-				myWriter.write("\n\n\n");
+            boolean json = metricsFile != null && (metricsFile.endsWith(".json") || metricsFile.endsWith(".jsonl"));
+            ReportWriter metricsWriter = (metricsFile != null) ? new ReportWriter(metricsFile) : null;
+            if (metricsWriter != null && !json)
+                metricsWriter.write(SearchMetrics.csvHeader() + "\n");
+
+            // Instances are read as the pool can take them: once
+            // MAX_PENDING_PER_THREAD instances per thread are in flight, the
+            // oldest one's results are written before the next is read
+            Deque<Instance> pending = new ArrayDeque<Instance>();
+            State initial;
+            int index = 0;
+            while ((initial = reader.next()) != null) {
+                if (pending.size() == MAX_PENDING_PER_THREAD*threads)
+                    writeInstance(pending.poll(), myWriter, metricsWriter, json);
+                pending.add(submit(pool, ++index, initial, goal, hueristics, pdb, searchThreads, spillDirectory, cache, table));
             }
+            while (!pending.isEmpty())
+                writeInstance(pending.poll(), myWriter, metricsWriter, json);
+            reader.close();
+            if (reader.getSkipped() > 0)
+                System.out.println("Skipped " + reader.getSkipped() + " invalid lines of input");
+
             myWriter.close();
+            if (metricsWriter != null)
+                metricsWriter.close();
+            if (cache != null) {
+                System.out.println("Solution cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses");
+                if (cacheFile != null)
+                    cache.save(cacheFile);
+            }
         } catch (IOException e) {
-            System.out.println("An error occurred while writing to output file");
+            System.out.println("An error occurred while reading input or writing to output file");
+            pool.shutdownNow();
         }
+		pool.shutdown();
 	}
 
-	public static void solve(String algo, State initial, State goal, FileWriter myWriter) {
-		Node[] solution = new Node[1];
-		long start = System.currentTimeMillis();
+	/**
+	 * Submit a job for every (algorithm, heuristic) of an instance, in the
+	 * order their results are written, or a single distance table lookup.
+	 *
+	 * @param pool        Pool solving the jobs
+	 * @param index       Number of the instance in the input
+	 * @param initial     Initial state
+	 * @param goal        Goal state
+	 * @param hueristics  Heuristic names
+	 * @param pdb         Pattern database, or null
+	 * @param workers     Number of worker threads of the parallel solvers
+	 * @param spill       Directory for the files of the external search, or null
+	 * @param cache       Solutions shared between solves, or null
+	 * @param table       Distance table answering the instance, or null
+	 * @return  The submitted instance
+	 */
+	private static Instance submit(ExecutorService pool, int index, State initial, State goal, String[] hueristics,
+								   PatternDatabase pdb, int workers, Path spill, SolutionCache cache,
+								   DistanceTable table) {
+		Instance instance = new Instance(initial);
+		if (table != null) {
+			SearchMetrics metrics = new SearchMetrics(index, "distance table", "distanceTable");
+			instance.add("distance table", "distanceTable", metrics, pool.submit(() -> lookup(table, initial, metrics)));
+			return instance;
+		}
+		for (String alg : algorithms(initial.getBoardSize())) {
+			for (String hue : hueristics) {
+				SearchMetrics metrics = new SearchMetrics(index, alg, hue);
+				instance.add(alg, hue, metrics, pool.submit(() -> solveJob(alg, hue, initial, goal, pdb, workers, spill, cache, metrics)));
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Wait for the jobs of an instance and write their results.
+	 *
+	 * @param instance       Submitted instance
+	 * @param myWriter       Results output
+	 * @param metricsWriter  Metrics output, or null
+	 * @param json           True to write metrics as JSON lines, else CSV
+	 * @throws IOException  If an output cannot be written
+	 */
+	private static void writeInstance(Instance instance, ReportWriter myWriter, ReportWriter metricsWriter, boolean json)
+			throws IOException {
+		System.out.println("Solving input: \n ");
+		System.out.println(instance.initial + "\n========================\n");
+
+		myWriter.write("Initial state: \n" + instance.initial + "\n========================\n");
+		for (int job = 0; job < instance.jobs.size(); job++) {
+			String alg = instance.algorithms.get(job);
+			if (job == 0 || !alg.equals(instance.algorithms.get(job - 1))) {
+				myWriter.write("\n------------------------------------------------------\n");
+				myWriter.write("Solving tile puzzle using " + alg + "\n------------------------------\n");
+				System.out.println("\n" + alg + "\n");
+			}
+			myWriter.write("Heuristic: " + instance.hueristics.get(job) + "\n------------------------------\n");
+			myWriter.write(result(instance.jobs.get(job)) + "\n------------------------------------------------------\n");
+			if (metricsWriter != null) {
+				// The job has finished, so its metrics are complete
+				SearchMetrics m = instance.metrics.get(job);
+				metricsWriter.write((json ? m.toJson() : m.toCsv()) + "\n");
+			}
+		}
+		myWriter.write("\n\n\n");
+	}
+
+	/**
+	 * Jobs submitted for one initial state.
+	 */
+	private static class Instance {
+
+		private final State initial;
+		private final List<String> algorithms = new ArrayList<String>();
+		private final List<String> hueristics = new ArrayList<String>();
+		private final List<SearchMetrics> metrics = new ArrayList<SearchMetrics>();
+		private final List<Future<SearchResult>> jobs = new ArrayList<Future<SearchResult>>();
+
+		/**
+		 * @param initial  Initial state
+		 */
+		Instance(State initial) {
+			this.initial = initial;
+		}
+
+		/**
+		 * @param alg      Algorithm name
+		 * @param hue      Heuristic name
+		 * @param metrics  Metrics filled in by the job
+		 * @param job      Submitted job
+		 */
+		void add(String alg, String hue, SearchMetrics metrics, Future<SearchResult> job) {
+			algorithms.add(alg);
+			hueristics.add(hue);
+			this.metrics.add(metrics);
+			jobs.add(job);
+		}
+	}
+
+	/**
+	 * Solve one instance with one algorithm and heuristic on the calling
+	 * thread.
+	 *
+	 * @param algo     Algorithm name
+	 * @param hue      Heuristic name
+	 * @param initial  Initial state
+	 * @param goal     Goal state
+	 * @param pdb      Pattern database, or null
+	 * @param workers  Number of worker threads of the parallel solvers
+	 * @param spill    Directory for the files of the external search, or null
+	 * @param cache    Solutions shared between solves, or null
+	 * @param metrics  Metrics filled in by the solver
+	 * @return  Result of the search
+	 */
+	private static SearchResult solveJob(String algo, String hue, State initial, State goal, PatternDatabase pdb, int workers,
+										 Path spill, SolutionCache cache, SearchMetrics metrics) {
+		Heuristic heuristic;
+		if (hue.equals("linearConflict"))
+			heuristic = new LinearConflict();
+		else if (hue.equals("patternDatabase"))
+			heuristic = pdb;
+		else
+			heuristic = new ManhattanDistance();
+		SolverConfig config = new SolverConfig(heuristic, algo.equals("MMf2f"), algo.equals("MMf2fEC"), workers, spill)
+				.withCache(cache);
+
+		return solve(algo, initial, goal, config, metrics);
+	}
+
+	/**
+	 * Answer one instance from the distance table on the calling thread.
+	 *
+	 * @param table    Distance table
+	 * @param initial  Initial state
+	 * @param metrics  Metrics of the lookup
+	 * @return  Result of the lookup, with the time it took
+	 */
+	private static SearchResult lookup(DistanceTable table, State initial, SearchMetrics metrics) {
+		long start = System.nanoTime();
+		metrics.start();
+		SearchResult result = table.solve(initial);
+		long measuredTime = System.nanoTime() - start;
+		metrics.finish();
+		if (result.isSolved())
+			metrics.setSolutionLength(result.getSolution()[0].getDepth());
+		return result.withTime(measuredTime);
+	}
+
+	/**
+	 * @param job  Submitted job
+	 * @return  Report of the job's search, once it has finished
+	 */
+	private static String result(Future<SearchResult> job) {
+		try {
+			SearchResult result = job.get();
+			switch (result.getStatus()) {
+				case SOLVED:
+					return result.getReport() + "Run time: " + result.getNanos()/1000000 + " ms\n";
+				case UNSOLVABLE:
+					return result.getReport();
+				default:
+					return result.getReport() + "No solution Found!\n";
+			}
+		} catch (ExecutionException e) {
+			System.out.println("Solver failed: " + e.getCause());
+			return "Solver failed: " + e.getCause() + "\n";
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return "Interrupted\n";
+		}
+	}
+
+	/**
+	 * @param boardSize  Number of rows (and columns) of the board
+	 * @return  Names of the algorithms which solve boards of the size
+	 */
+	static String[] algorithms(int boardSize) {
+		return (boardSize > State.MAX_PACKED_SIZE) ? WIDE_ALGORITHMS : ALGORITHMS;
+	}
+
+	/**
+	 * @param algo     Algorithm name
+	 * @param initial  Initial state
+	 * @param goal     Goal state
+	 * @param config   Solver settings
+	 * @return  Result of the search, with the time it took
+	 */
+	public static SearchResult solve(String algo, State initial, State goal, SolverConfig config) {
+		return solve(algo, initial, goal, config, SearchMetrics.of(algo, config));
+	}
+
+	/**
+	 * @param algo     Algorithm name
+	 * @param initial  Initial state
+	 * @param goal     Goal state
+	 * @param config   Solver settings
+	 * @param metrics  Metrics of the search; the A*, bidirectional A*,
+	 *                 external A* and MM solvers fill in their counters,
+	 *                 the others only the solution length and time
+	 * @return  Result of the search, with the time it took. If the settings
+	 *          have a solution cache and the algorithm is optimal, a cached
+	 *          solution is returned without searching, and the solution
+	 *          found by the search is cached otherwise
+	 */
+	public static SearchResult solve(String algo, State initial, State goal, SolverConfig config, SearchMetrics metrics) {
+		// Reject unreachable goals up front, every solver would otherwise
+		// search the whole reachable half of the state space
+		if (!initial.isSolvable(goal))
+			return SearchResult.unsolvable("Unsolvable: the goal cannot be reached from the initial state\n");
+		if (initial.isWide() && !Arrays.asList(WIDE_ALGORITHMS).contains(algo))
+			throw new IllegalArgumentException(algo + " does not support " + initial.getBoardSize() + "x"
+					+ initial.getBoardSize() + " boards");
+
+		SearchResult result;
+		long start = System.nanoTime();
+		metrics.start();
+		SolutionCache cache = OPTIMAL_ALGORITHMS.contains(algo) ? config.getCache() : null;
+		SearchResult cached = (cache != null) ? cache.get(initial, goal, config.getHeuristic()) : null;
+		if (cached != null) {
+			metrics.finish();
+			metrics.setSolutionLength(cached.getSolution()[0].getDepth());
+			return cached.withTime(System.nanoTime() - start);
+		}
 		switch (algo) {
 			case "bidirectional A*":
-				solution = BidiAStarSearch.biDirectionalSolve(initial, goal, myWriter);
+				result = BidiAStarSearch.biDirectionalSolve(initial, goal, config, metrics);
 				break;
 			case "A*":
-				solution[0] = AStarSearch.AStarSolve(initial, goal, myWriter);
+				result = AStarSearch.AStarSolve(initial, goal, config, metrics);
+				break;
+			case "IDA*":
+				result = IDAStarSearch.IDAStarSolve(initial, goal, config, metrics);
+				break;
+			case "parallel IDA*":
+				result = ParallelIDAStarSearch.ParallelIDAStarSolve(initial, goal, config, metrics);
+				break;
+			case "HDA*":
+				result = HDAStarSearch.HDAStarSolve(initial, goal, config, metrics);
 				break;
 			case "MM":
-				solution = MMsearch.MMSolve(initial, goal, myWriter);
+				result = MMsearch.MMSolve(initial, goal, config, metrics);
+				break;
+			case "concurrent MM":
+				result = ConcurrentMMsearch.MMSolve(initial, goal, config, metrics);
 				break;
 			case "MMf2f":
-				solution = MMsearch.MMSolve(initial, goal, myWriter);
+				result = MMsearch.MMSolve(initial, goal, config, metrics);
 				break;
 			case "MMf2fEC":
-                solution = MMsearch.MMSolve(initial, goal, myWriter);
+				result = MMsearch.MMSolve(initial, goal, config, metrics);
 				break;
+			case "external A*":
+				result = ExternalAStarSearch.ExternalAStarSolve(initial, goal, config, metrics);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown algorithm '" + algo + "'");
 		}
-		long end = System.currentTimeMillis();
-		long measuredTime = end - start;
-		try {
-			if (solution == null) {
-				myWriter.write("No solution Found!\n");
-			} else {
-				myWriter.write("Run time: " + measuredTime + " ms\n");
-			}
-		} catch (IOException e) {
-			System.out.println("An error occurred while writing to output file");
-		}
+		long measuredTime = System.nanoTime() - start;
+		metrics.finish();
+		if (cache != null)
+			cache.put(initial, goal, result);
+		Node[] solution = result.getSolution();
+		if (solution.length == 1 && metrics.getSolutionLength() < 0)
+			metrics.setSolutionLength(solution[0].getDepth());
+		return result.withTime(measuredTime);
 	}
 
 }
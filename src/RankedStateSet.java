@@ -0,0 +1,75 @@
+/**
+ * Set of the boards reachable from one board, for puzzles small enough to
+ * index every such board by its rank. Membership takes one bit per board,
+ * and the operator that reached each board two more bits, so no hashing is
+ * done and the memory used doesn't depend on the number of boards added.
+ * For the 8-puzzle the set takes about 68 KB.
+ */
+public class RankedStateSet {
+
+    // Largest board whose boards are indexed by an int rank
+    public static final int MAX_BOARD_SIZE = 3;
+
+    private static final State.Operator[] OPERATORS = State.Operator.values();
+
+    private final int capacity;
+    private final long[] members;
+    private final long[] moves;   // Operator ordinal, 2 bits per rank
+    private int size;
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the board
+     */
+    public RankedStateSet(int boardSize) {
+        if (boardSize < 2 || boardSize > MAX_BOARD_SIZE)
+            throw new IllegalArgumentException("Board size " + boardSize + " is too large to index by rank");
+        this.capacity = (int) PermutationRank.states(boardSize);
+        this.members = new long[(capacity + 63) >>> 6];
+        this.moves = new long[(capacity + 31) >>> 5];
+    }
+
+    /**
+     * @return  Number of ranks the set can hold
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return  Number of boards in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param rank  Rank of a board
+     * @return  True if the board is in the set
+     */
+    public boolean contains(int rank) {
+        return (members[rank >>> 6] & (1L << rank)) != 0;
+    }
+
+    /**
+     * @param rank  Rank of a board
+     * @param op    Operator that reached the board, or null for the root
+     * @return  True if the board was added, false if it was already in the set
+     */
+    public boolean add(int rank, State.Operator op) {
+        if (contains(rank))
+            return false;
+        members[rank >>> 6] |= 1L << rank;
+        if (op != null)
+            moves[rank >>> 5] |= (long) op.ordinal() << ((rank & 31) << 1);
+        size++;
+        return true;
+    }
+
+    /**
+     * @param rank  Rank of a board in the set, other than the root
+     * @return  Operator that reached the board
+     */
+    public State.Operator getMove(int rank) {
+        return OPERATORS[(int) (moves[rank >>> 5] >>> ((rank & 31) << 1)) & 3];
+    }
+}
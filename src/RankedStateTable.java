@@ -0,0 +1,75 @@
+import java.util.Arrays;
+
+/**
+ * Node index of every board reachable from one board, in an array indexed
+ * by the board's PermutationRank. No hashing or probing is done, and the
+ * table never grows. For the 8-puzzle it takes about 710 KB.
+ */
+public class RankedStateTable implements StateIndex {
+
+    private final int boardSize;
+    private final int[] values;    // Node index, or NOT_FOUND
+    private int size;
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the board
+     */
+    public RankedStateTable(int boardSize) {
+        if (boardSize < 2 || boardSize > RankedStateSet.MAX_BOARD_SIZE)
+            throw new IllegalArgumentException("Board size " + boardSize + " is too large to index by rank");
+        this.boardSize = boardSize;
+        this.values = new int[(int) PermutationRank.states(boardSize)];
+        Arrays.fill(values, StateTable.NOT_FOUND);
+    }
+
+    /* (non-Javadoc)
+     * @see StateIndex#size()
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /* (non-Javadoc)
+     * @see StateIndex#get(State)
+     */
+    @Override
+    public int get(State s) {
+        return values[rank(s)];
+    }
+
+    /* (non-Javadoc)
+     * @see StateIndex#put(State, int)
+     */
+    @Override
+    public void put(State s, int index) {
+        if (index < 0)
+            throw new IllegalArgumentException("Node index must not be negative: " + index);
+        int rank = rank(s);
+        if (values[rank] == StateTable.NOT_FOUND)
+            size++;
+        values[rank] = index;
+    }
+
+    /* (non-Javadoc)
+     * @see StateIndex#remove(State)
+     */
+    @Override
+    public int remove(State s) {
+        int rank = rank(s);
+        int removed = values[rank];
+        if (removed != StateTable.NOT_FOUND) {
+            values[rank] = StateTable.NOT_FOUND;
+            size--;
+        }
+        return removed;
+    }
+
+    /**
+     * @param s  Board reachable from the boards already stored
+     * @return  Rank of the board
+     */
+    private int rank(State s) {
+        return (int) PermutationRank.rank(boardSize, s.getPacked());
+    }
+}
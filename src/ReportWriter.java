@@ -0,0 +1,148 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes text to a file on a background thread, so that the threads
+ * producing results never wait for the disk. Text is handed over through a
+ * bounded queue, encoded into a direct buffer, and the buffer is written to
+ * a file channel whenever it is full or the queue has run empty. A writer
+ * that falls behind makes write block once the queue is full, rather than
+ * letting pending text grow without bound.
+ */
+public class ReportWriter implements Closeable {
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Queued by close to stop the background thread
+    private static final String END = new String();
+
+    private final FileChannel channel;
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<String>(QUEUE_CAPACITY);
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final Thread thread;
+
+    private volatile IOException failure;
+
+    /**
+     * @param file  File to write, replacing its contents
+     * @throws IOException  If the file cannot be opened
+     */
+    public ReportWriter(String file) throws IOException {
+        this.channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.thread = new Thread(this::run, "report writer " + file);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queue text to be written.
+     *
+     * @param text  Text to write
+     * @throws IOException  If an earlier write failed, or the calling
+     *                      thread was interrupted while the queue was full
+     */
+    public void write(String text) throws IOException {
+        if (failure != null)
+            throw failure;
+        try {
+            queue.put(text);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing report");
+        }
+    }
+
+    /**
+     * Write all queued text, stop the background thread and close the file.
+     *
+     * @throws IOException  If any write failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            queue.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing report");
+        } finally {
+            channel.close();
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                String text = queue.take();
+                if (text == END)
+                    break;
+                encode(text);
+                // Make everything written so far visible while idle
+                if (queue.isEmpty())
+                    drain();
+            }
+            drain();
+        } catch (IOException e) {
+            failure = e;
+            // Keep taking text, so producers blocked on a full queue and
+            // close can proceed
+            try {
+                while (queue.take() != END)
+                    ;
+            } catch (InterruptedException ignored) {
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("Report writer interrupted");
+        }
+    }
+
+    /**
+     * @param text  Text to add to the buffer, writing out the buffer
+     *              whenever it fills up
+     * @throws IOException  If the file cannot be written
+     */
+    private void encode(String text) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                drain();
+                continue;
+            }
+            if (result.isError())
+                result.throwException();
+            break;
+        }
+        while (encoder.flush(buffer).isOverflow())
+            drain();
+    }
+
+    /**
+     * Write out the buffer.
+     *
+     * @throws IOException  If the file cannot be written
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
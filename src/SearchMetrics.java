@@ -0,0 +1,255 @@
+import java.util.Locale;
+
+/**
+ * Counters and timings of a single search, filled in by the solver while it
+ * runs and written as one CSV row or JSON line afterwards. Counts kept per
+ * direction are indexed by FWD and REV; unidirectional searches only use
+ * FWD. Times are in nanoseconds since the search started, or -1 if the event
+ * did not happen.
+ *
+ * The time spent evaluating the heuristic is measured on every
+ * HEURISTIC_SAMPLE-th evaluation and scaled up to all of them, so that
+ * reading the clock does not dominate cheap incremental heuristics.
+ *
+ * The metrics are not thread-safe. A search running on several threads
+ * gives each thread its own metrics from forThread, and adds them up with
+ * add once the threads are done.
+ */
+public class SearchMetrics {
+
+    public static final int FWD = 0;        // Forward direction
+    public static final int REV = 1;        // Backward direction
+
+    private static final int HEURISTIC_SAMPLE = 16;
+
+    private final int instance;
+    private final String algorithm;
+    private final String heuristic;
+
+    private final long[] expanded = new long[2];
+    private final long[] generated = new long[2];
+    private final long[] reopened = new long[2];
+    private final int[] peakOpen = new int[2];
+    private final int[] peakClosed = new int[2];
+
+    private long heuristicEvaluations;
+    private long sampledEvaluations;
+    private long sampledHeuristicNanos;
+
+    private long startNanos;
+    private long firstMeetNanos = -1;
+    private long lastImprovementNanos = -1;
+    private long totalNanos = -1;
+    private int solutionLength = -1;
+
+    /**
+     * @param instance   Index of the solved instance in the input
+     * @param algorithm  Name of the algorithm
+     * @param heuristic  Name of the heuristic
+     */
+    public SearchMetrics(int instance, String algorithm, String heuristic) {
+        this.instance = instance;
+        this.algorithm = algorithm;
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Metrics for a search whose caller does not report them, such as a
+     * benchmark.
+     *
+     * @param algorithm  Name of the algorithm
+     * @param config     Solver settings, whose heuristic is named
+     * @return  Metrics of instance 0
+     */
+    public static SearchMetrics of(String algorithm, SolverConfig config) {
+        return new SearchMetrics(0, algorithm, config.getHeuristic().getClass().getSimpleName());
+    }
+
+    /**
+     * @return  Empty metrics of the same search, for one of its threads to
+     *          fill in, with the same start time
+     */
+    public SearchMetrics forThread() {
+        SearchMetrics metrics = new SearchMetrics(instance, algorithm, heuristic);
+        metrics.startNanos = startNanos;
+        return metrics;
+    }
+
+    /**
+     * Add the metrics filled in by one thread of the search. Peak sizes are
+     * the largest of any thread.
+     *
+     * @param other  Metrics from forThread, no longer being filled in
+     */
+    public void add(SearchMetrics other) {
+        for (int dir = FWD; dir <= REV; dir++) {
+            expanded[dir] += other.expanded[dir];
+            generated[dir] += other.generated[dir];
+            reopened[dir] += other.reopened[dir];
+            peakOpen[dir] = Math.max(peakOpen[dir], other.peakOpen[dir]);
+            peakClosed[dir] = Math.max(peakClosed[dir], other.peakClosed[dir]);
+        }
+        heuristicEvaluations += other.heuristicEvaluations;
+        sampledEvaluations += other.sampledEvaluations;
+        sampledHeuristicNanos += other.sampledHeuristicNanos;
+        if (other.firstMeetNanos >= 0 && (firstMeetNanos < 0 || other.firstMeetNanos < firstMeetNanos))
+            firstMeetNanos = other.firstMeetNanos;
+        lastImprovementNanos = Math.max(lastImprovementNanos, other.lastImprovementNanos);
+    }
+
+    /**
+     * Start the clock of the search.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Stop the clock of the search.
+     */
+    public void finish() {
+        totalNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @param dir  Direction of the expanded node
+     */
+    public void expanded(int dir) {
+        expanded[dir]++;
+    }
+
+    /**
+     * @param dir  Direction of the generated state
+     */
+    public void generated(int dir) {
+        generated[dir]++;
+    }
+
+    /**
+     * @param dir  Direction of the closed node which was opened again
+     */
+    public void reopened(int dir) {
+        reopened[dir]++;
+    }
+
+    /**
+     * Raise the peak sizes of a direction's open and closed sets.
+     *
+     * @param dir     Direction
+     * @param open    Current size of the open set
+     * @param closed  Current size of the closed set
+     */
+    public void sizes(int dir, int open, int closed) {
+        if (open > peakOpen[dir])
+            peakOpen[dir] = open;
+        if (closed > peakClosed[dir])
+            peakClosed[dir] = closed;
+    }
+
+    /**
+     * Count a heuristic evaluation which is about to start.
+     *
+     * @return  Value to pass to heuristicEnd
+     */
+    public long heuristicStart() {
+        if (heuristicEvaluations++ % HEURISTIC_SAMPLE != 0)
+            return 0;
+        return System.nanoTime();
+    }
+
+    /**
+     * @param start  Value returned by heuristicStart
+     */
+    public void heuristicEnd(long start) {
+        if (start == 0)
+            return;
+        sampledHeuristicNanos += System.nanoTime() - start;
+        sampledEvaluations++;
+    }
+
+    /**
+     * Record that the directions met, or that a path to the goal was found.
+     *
+     * @param improved  True if the path is shorter than the best one so far
+     */
+    public void met(boolean improved) {
+        long now = System.nanoTime() - startNanos;
+        if (firstMeetNanos < 0)
+            firstMeetNanos = now;
+        if (improved)
+            lastImprovementNanos = now;
+    }
+
+    /**
+     * @param length  Length of the found path
+     */
+    public void setSolutionLength(int length) {
+        this.solutionLength = length;
+    }
+
+    /**
+     * @return  Length of the found path, or -1 if none was recorded
+     */
+    public int getSolutionLength() {
+        return solutionLength;
+    }
+
+    /**
+     * @return  States generated over both directions
+     */
+    public long getGenerated() {
+        return generated[FWD] + generated[REV];
+    }
+
+    /**
+     * @return  Estimated nanoseconds spent evaluating the heuristic
+     */
+    public long getHeuristicNanos() {
+        if (sampledEvaluations == 0)
+            return 0;
+        return sampledHeuristicNanos*heuristicEvaluations/sampledEvaluations;
+    }
+
+    /**
+     * @return  Nodes expanded per second over both directions
+     */
+    public double getExpansionRate() {
+        if (totalNanos <= 0)
+            return 0;
+        return (expanded[FWD] + expanded[REV])*1e9/totalNanos;
+    }
+
+    /**
+     * @return  Column names of the rows written by toCsv
+     */
+    public static String csvHeader() {
+        return "instance,algorithm,heuristic,solution_length,total_ns,expanded_fwd,expanded_rev,generated_fwd,generated_rev,"
+                + "reopened_fwd,reopened_rev,peak_open_fwd,peak_open_rev,peak_closed_fwd,peak_closed_rev,"
+                + "expansions_per_s,heuristic_evaluations,heuristic_ns,first_meet_ns,last_improvement_ns";
+    }
+
+    /**
+     * @return  The metrics as a CSV row, without a line break
+     */
+    public String toCsv() {
+        return String.format(Locale.ROOT, "%d,\"%s\",\"%s\",%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%.1f,%d,%d,%d,%d",
+                instance, algorithm, heuristic, solutionLength, totalNanos,
+                expanded[FWD], expanded[REV], generated[FWD], generated[REV], reopened[FWD], reopened[REV],
+                peakOpen[FWD], peakOpen[REV], peakClosed[FWD], peakClosed[REV],
+                getExpansionRate(), heuristicEvaluations, getHeuristicNanos(), firstMeetNanos, lastImprovementNanos);
+    }
+
+    /**
+     * @return  The metrics as a JSON object on one line
+     */
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"instance\":%d,\"algorithm\":\"%s\",\"heuristic\":\"%s\",\"solution_length\":%d,"
+                        + "\"total_ns\":%d,\"expanded\":[%d,%d],\"generated\":[%d,%d],\"reopened\":[%d,%d],"
+                        + "\"peak_open\":[%d,%d],\"peak_closed\":[%d,%d],\"expansions_per_s\":%.1f,"
+                        + "\"heuristic_evaluations\":%d,\"heuristic_ns\":%d,\"first_meet_ns\":%d,\"last_improvement_ns\":%d}",
+                instance, algorithm, heuristic, solutionLength, totalNanos,
+                expanded[FWD], expanded[REV], generated[FWD], generated[REV], reopened[FWD], reopened[REV],
+                peakOpen[FWD], peakOpen[REV], peakClosed[FWD], peakClosed[REV],
+                getExpansionRate(), heuristicEvaluations, getHeuristicNanos(), firstMeetNanos, lastImprovementNanos);
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Outcome of a single search, returned by the solvers instead of being
+ * written while they search. The report holds the lines describing the
+ * search, such as the depth of the found path and the number of generated
+ * nodes, and is written out once the search has ended.
+ */
+public final class SearchResult {
+
+    /**
+     * How a search ended.
+     */
+    public enum Status {
+        SOLVED,
+        NO_SOLUTION,
+        // Rejected before searching, as the goal cannot be reached
+        UNSOLVABLE
+    }
+
+    private static final Node[] NO_NODES = {};
+
+    private final Status status;
+    private final Node[] solution;
+    private final String report;
+    private final long nanos;
+
+    /**
+     * @param status    How the search ended
+     * @param solution  Nodes at the end of the found path
+     * @param report    Lines describing the search
+     * @param nanos     Duration of the search, or -1 if not measured
+     */
+    private SearchResult(Status status, Node[] solution, String report, long nanos) {
+        this.status = status;
+        this.solution = solution;
+        this.report = report;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @param report    Lines describing the search
+     * @param solution  Nodes at the end of the found path: the goal node
+     *                  for unidirectional searches, the forward and
+     *                  backward meeting nodes for bidirectional ones, or
+     *                  none if the solver only computes the path length
+     * @return  Result of a search which found a path
+     */
+    public static SearchResult solved(String report, Node... solution) {
+        return new SearchResult(Status.SOLVED, solution, report, -1);
+    }
+
+    /**
+     * @param report  Lines describing the search
+     * @return  Result of a search which found no path
+     */
+    public static SearchResult noSolution(String report) {
+        return new SearchResult(Status.NO_SOLUTION, NO_NODES, report, -1);
+    }
+
+    /**
+     * @param report  Lines describing why the instance cannot be solved
+     * @return  Result of an instance rejected before searching
+     */
+    public static SearchResult unsolvable(String report) {
+        return new SearchResult(Status.UNSOLVABLE, NO_NODES, report, -1);
+    }
+
+    /**
+     * @param nanos  Duration of the search
+     * @return  This result with the duration of the search
+     */
+    public SearchResult withTime(long nanos) {
+        return new SearchResult(status, solution, report, nanos);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return  True if a path was found
+     */
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
+
+    /**
+     * @return  Nodes at the end of the found path, empty if none were kept
+     */
+    public Node[] getSolution() {
+        return solution;
+    }
+
+    /**
+     * @return  Lines describing the search, each ending with a line break
+     */
+    public String getReport() {
+        return report;
+    }
+
+    /**
+     * @return  Duration of the search in nanoseconds, or -1 if not measured
+     */
+    public long getNanos() {
+        return nanos;
+    }
+}
@@ -0,0 +1,335 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Optimal solutions of solved instances, shared by the solver threads and
+ * evicted least recently used first once the cache is full.
+ *
+ * An instance is keyed by its canonical form. The tiles are relabelled by
+ * their goal cells, so the key is the permutation taking each cell to the
+ * goal cell of its tile, together with the goal cell of the blank. Every
+ * (initial, goal) pair with the same relabelled permutation has the same
+ * solutions. Reflecting both boards in the main diagonal gives another
+ * instance whose solutions are the reflected moves (Up and Left swapped,
+ * Down and Right swapped), so the smaller of the two keys is used and the
+ * moves are reflected when needed. Boards larger than 4x4 are not cached.
+ *
+ * Snapshot layout: magic and entry count, then for each entry from the
+ * least to the most recently used, the board size, permutation, blank
+ * cell, solution length and moves packed 2 bits each.
+ */
+public class SolutionCache {
+
+    static final int MAGIC = 0x534C4331;   // "SLC1"
+
+    private static final State.Operator[] OPERATORS = State.Operator.values();
+
+    /**
+     * Canonical form of an instance.
+     */
+    private static final class Key {
+        private final int boardSize;
+        private final long permutation;   // Goal cell of the tile on each cell, 4 bits per cell
+        private final int blank;          // Goal cell of the blank
+
+        /**
+         * @param boardSize    Number of rows (and columns) of the board
+         * @param permutation  Goal cell of the tile on each cell
+         * @param blank        Goal cell of the blank
+         */
+        Key(int boardSize, long permutation, int blank) {
+            this.boardSize = boardSize;
+            this.permutation = permutation;
+            this.blank = blank;
+        }
+
+        /**
+         * @param other  Key of the same board size
+         * @return  True if this key orders before the other
+         */
+        boolean lessThan(Key other) {
+            int c = Long.compareUnsigned(permutation, other.permutation);
+            return c < 0 || (c == 0 && blank < other.blank);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return permutation == other.permutation && blank == other.blank && boardSize == other.boardSize;
+        }
+
+        @Override
+        public int hashCode() {
+            long hash = (permutation ^ ((long) blank << 59) ^ boardSize) * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    /**
+     * Solution of a canonical instance.
+     */
+    private static final class Entry {
+        private final short length;
+        private final byte[] moves;   // Operator ordinals, 2 bits each
+
+        /**
+         * @param length  Number of moves
+         * @param moves   Packed operator ordinals
+         */
+        Entry(short length, byte[] moves) {
+            this.length = length;
+            this.moves = moves;
+        }
+
+        /**
+         * @param i  Move number
+         * @return  Operator of the move
+         */
+        State.Operator get(int i) {
+            return OPERATORS[(moves[i >>> 2] >>> ((i & 3) << 1)) & 3];
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> entries;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity  Largest number of solutions kept
+     */
+    public SolutionCache(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        // Iterated in access order, so the eldest entry is the least
+        // recently used one
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Loads a snapshot written by save, keeping the most recently used
+     * solutions if it holds more than the capacity.
+     *
+     * @param file      Snapshot file, which may not exist yet
+     * @param capacity  Largest number of solutions kept
+     * @return  Cache holding the solutions of the snapshot, or an empty
+     *          cache if the file doesn't exist
+     * @throws IOException  If the file cannot be read or is not a snapshot
+     */
+    public static SolutionCache load(String file, int capacity) throws IOException {
+        SolutionCache cache = new SolutionCache(capacity);
+        if (!Files.exists(Paths.get(file)))
+            return cache;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("'" + file + "' is not a solution cache");
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int boardSize = in.readByte();
+                long permutation = in.readLong();
+                int blank = in.readByte();
+                short length = in.readShort();
+                if (boardSize < 2 || boardSize > 4 || length < 0)
+                    throw new IOException("'" + file + "' is corrupt");
+                byte[] moves = new byte[(length + 3) >>> 2];
+                in.readFully(moves);
+                cache.entries.put(new Key(boardSize, permutation, blank), new Entry(length, moves));
+            }
+        } catch (EOFException e) {
+            throw new IOException("'" + file + "' is truncated");
+        }
+        return cache;
+    }
+
+    /**
+     * @param file  Snapshot file to write
+     * @throws IOException  If the file cannot be written
+     */
+    public synchronized void save(String file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(entries.size());
+            for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+                Key key = e.getKey();
+                out.writeByte(key.boardSize);
+                out.writeLong(key.permutation);
+                out.writeByte(key.blank);
+                out.writeShort(e.getValue().length);
+                out.write(e.getValue().moves);
+            }
+        }
+    }
+
+    /**
+     * @return  Number of solutions kept
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return  Number of lookups which found a solution
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return  Number of lookups which found no solution
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @param initial    Initial state
+     * @param goal       Goal state
+     * @param heuristic  Heuristic of the nodes on the returned path
+     * @return  Result holding the cached solution, with the goal node which
+     *          includes a back pointer towards the initial state, or null
+     *          if the instance isn't cached
+     */
+    public SearchResult get(State initial, State goal, Heuristic heuristic) {
+        if (initial.isWide())
+            return null;
+        Key key = key(initial, goal, false);
+        Key reflected = key(initial, goal, true);
+        boolean reflect = reflected.lessThan(key);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(reflect ? reflected : key);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+
+        State.Operator[] ops = new State.Operator[entry.length];
+        for (int i = 0; i < entry.length; i++)
+            ops[i] = reflect ? reflect(entry.get(i)) : entry.get(i);
+        return SearchResult.solved("Found path: depth:" + entry.length + "\n"
+                + "Nodes Generated: 0 (cached)\n", NodeStore.path(initial, ops, heuristic, goal));
+    }
+
+    /**
+     * Keep the solution of a search which found a path to a goal node, or
+     * forward and backward meeting nodes. Other results are ignored.
+     *
+     * @param initial  Initial state
+     * @param goal     Goal state
+     * @param result   Result of an optimal search
+     */
+    public void put(State initial, State goal, SearchResult result) {
+        if (initial.isWide() || !result.isSolved() || result.getSolution().length == 0)
+            return;
+        State.Operator[] ops = operators(result.getSolution());
+
+        Key key = key(initial, goal, false);
+        Key reflected = key(initial, goal, true);
+        boolean reflect = reflected.lessThan(key);
+        byte[] moves = new byte[(ops.length + 3) >>> 2];
+        for (int i = 0; i < ops.length; i++) {
+            State.Operator op = reflect ? reflect(ops[i]) : ops[i];
+            moves[i >>> 2] |= (byte) (op.ordinal() << ((i & 3) << 1));
+        }
+        synchronized (this) {
+            entries.put(reflect ? reflected : key, new Entry((short) ops.length, moves));
+        }
+    }
+
+    /**
+     * @param solution  Goal node, or forward and backward meeting nodes
+     * @return  Operators from the initial state to the goal
+     */
+    private static State.Operator[] operators(Node[] solution) {
+        State.Operator[] ops = solution[0].getOperators();
+        if (solution.length == 1)
+            return ops;
+
+        // The backward path leads from the goal to the meeting point, so
+        // it is walked back with the reverse operators
+        State.Operator[] back = solution[1].getOperators();
+        State.Operator[] path = Arrays.copyOf(ops, ops.length + back.length);
+        for (int i = 0; i < back.length; i++)
+            path[ops.length + i] = back[back.length - 1 - i].reverse();
+        return path;
+    }
+
+    /**
+     * @param initial  Initial state
+     * @param goal     Goal state
+     * @param reflect  True for the key of the instance reflected in the
+     *                 main diagonal
+     * @return  Key of the instance
+     */
+    private static Key key(State initial, State goal, boolean reflect) {
+        int boardSize = initial.getBoardSize();
+        int cells = boardSize*boardSize;
+        long packed = initial.getPacked();
+        long goalPacked = goal.getPacked();
+
+        // Goal cell of each tile, packed 4 bits per tile
+        long goalCell = 0;
+        for (int cell = 0; cell < cells; cell++)
+            goalCell |= (long) cell << (((goalPacked >>> (cell << 2)) & 0xF) << 2);
+
+        long permutation = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            int target = (int) (goalCell >>> (((packed >>> (cell << 2)) & 0xF) << 2)) & 0xF;
+            if (reflect)
+                permutation |= (long) reflect(target, boardSize) << (reflect(cell, boardSize) << 2);
+            else
+                permutation |= (long) target << (cell << 2);
+        }
+        int blank = goal.getBlank();
+        return new Key(boardSize, permutation, reflect ? reflect(blank, boardSize) : blank);
+    }
+
+    /**
+     * @param cell       Cell index (row*boardSize+col)
+     * @param boardSize  Number of rows (and columns) of the board
+     * @return  Cell reflected in the main diagonal
+     */
+    private static int reflect(int cell, int boardSize) {
+        return (cell % boardSize)*boardSize + cell / boardSize;
+    }
+
+    /**
+     * @param op  Operator
+     * @return  Operator moving the blank in the direction reflected in the
+     *          main diagonal
+     */
+    private static State.Operator reflect(State.Operator op) {
+        switch (op) {
+            case Up:
+                return State.Operator.Left;
+            case Left:
+                return State.Operator.Up;
+            case Down:
+                return State.Operator.Right;
+            default:
+                return State.Operator.Down;
+        }
+    }
+}
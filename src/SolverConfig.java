@@ -0,0 +1,132 @@
+import java.nio.file.Path;
+
+/**
+ * Settings of a single solver run. Instances are immutable, so searches
+ * running at the same time can each use their own settings.
+ */
+public final class SolverConfig {
+
+    private final Heuristic heuristic;
+    private final boolean f2f;              // MM with the front-to-front heuristic
+    private final boolean f2fEndCondition;  // MM with the front-to-front heuristic with end condition
+    private final int threads;              // Worker threads of the parallel solvers
+    private final Path spillDirectory;      // Directory for the files of the external search, or null
+    private final SolutionCache cache;      // Solutions shared between solves, or null
+
+    /**
+     * @param heuristic  Heuristic used by the search
+     */
+    public SolverConfig(Heuristic heuristic) {
+        this(heuristic, false, false);
+    }
+
+    /**
+     * @param heuristic        Heuristic used by the search
+     * @param f2f              True for MM to use the front-to-front heuristic
+     * @param f2fEndCondition  True for MM to use the front-to-front heuristic
+     *                         with end condition
+     */
+    public SolverConfig(Heuristic heuristic, boolean f2f, boolean f2fEndCondition) {
+        this(heuristic, f2f, f2fEndCondition, 1);
+    }
+
+    /**
+     * @param heuristic        Heuristic used by the search
+     * @param f2f              True for MM to use the front-to-front heuristic
+     * @param f2fEndCondition  True for MM to use the front-to-front heuristic
+     *                         with end condition
+     * @param threads          Number of worker threads of the parallel solvers
+     */
+    public SolverConfig(Heuristic heuristic, boolean f2f, boolean f2fEndCondition, int threads) {
+        this(heuristic, f2f, f2fEndCondition, threads, null);
+    }
+
+    /**
+     * @param heuristic        Heuristic used by the search
+     * @param f2f              True for MM to use the front-to-front heuristic
+     * @param f2fEndCondition  True for MM to use the front-to-front heuristic
+     *                         with end condition
+     * @param threads          Number of worker threads of the parallel solvers
+     * @param spillDirectory   Directory in which the external search creates
+     *                         its files, or null for the system's temporary
+     *                         directory
+     */
+    public SolverConfig(Heuristic heuristic, boolean f2f, boolean f2fEndCondition, int threads, Path spillDirectory) {
+        this(heuristic, f2f, f2fEndCondition, threads, spillDirectory, null);
+    }
+
+    /**
+     * @param heuristic        Heuristic used by the search
+     * @param f2f              True for MM to use the front-to-front heuristic
+     * @param f2fEndCondition  True for MM to use the front-to-front heuristic
+     *                         with end condition
+     * @param threads          Number of worker threads of the parallel solvers
+     * @param spillDirectory   Directory for the files of the external search,
+     *                         or null
+     * @param cache            Solutions shared between solves, or null
+     */
+    private SolverConfig(Heuristic heuristic, boolean f2f, boolean f2fEndCondition, int threads, Path spillDirectory,
+                         SolutionCache cache) {
+        if (heuristic == null)
+            throw new IllegalArgumentException("A heuristic is required");
+        if (threads < 1)
+            throw new IllegalArgumentException("At least one thread is required: " + threads);
+        this.heuristic = heuristic;
+        this.f2f = f2f;
+        this.f2fEndCondition = f2fEndCondition;
+        this.threads = threads;
+        this.spillDirectory = spillDirectory;
+        this.cache = cache;
+    }
+
+    /**
+     * @param cache  Solutions shared between solves, or null
+     * @return  These settings with the given solution cache
+     */
+    public SolverConfig withCache(SolutionCache cache) {
+        return new SolverConfig(heuristic, f2f, f2fEndCondition, threads, spillDirectory, cache);
+    }
+
+    /**
+     * @return  Heuristic used by the search
+     */
+    public Heuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * @return  True if MM uses the front-to-front heuristic
+     */
+    public boolean isF2f() {
+        return f2f;
+    }
+
+    /**
+     * @return  True if MM uses the front-to-front heuristic with end condition
+     */
+    public boolean isF2fEndCondition() {
+        return f2fEndCondition;
+    }
+
+    /**
+     * @return  Number of worker threads of the parallel solvers
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return  Directory in which the external search creates its files, or
+     *          null for the system's temporary directory
+     */
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * @return  Solutions shared between solves, or null
+     */
+    public SolutionCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,349 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * File of packed states (longs) on disk, which is only ever appended to and
+ * read sequentially, through a direct buffer on a file channel. Sorted
+ * files can also be searched for a single state.
+ */
+public class SpillFile {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private long count;
+
+    /**
+     * @param path  File to create, replacing an existing one
+     * @throws IOException  If the file cannot be created
+     */
+    public SpillFile(Path path) throws IOException {
+        this.path = path;
+        Files.deleteIfExists(path);
+        Files.createFile(path);
+    }
+
+    /**
+     * @return  Number of states in the file
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return  Appender adding states to the end of the file
+     * @throws IOException  If the file cannot be opened
+     */
+    public Appender appender() throws IOException {
+        return new Appender();
+    }
+
+    /**
+     * @return  Cursor reading the states of the file in order
+     * @throws IOException  If the file cannot be opened
+     */
+    public Cursor cursor() throws IOException {
+        return new FileCursor();
+    }
+
+    /**
+     * Binary search of a sorted file.
+     *
+     * @param value  Packed state
+     * @return  True if the file holds the state
+     * @throws IOException  If the file cannot be read
+     */
+    public boolean contains(long value) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            long low = 0;
+            long high = count - 1;
+            while (low <= high) {
+                long middle = (low + high) >>> 1;
+                buffer.clear();
+                while (buffer.hasRemaining())
+                    channel.read(buffer, middle*Long.BYTES + buffer.position());
+                long found = buffer.getLong(0);
+                if (found < value)
+                    low = middle + 1;
+                else if (found > value)
+                    high = middle - 1;
+                else
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @throws IOException  If the file cannot be deleted
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Sort the states of a file and remove the duplicates, as well as the
+     * states found in any of the given sorted files. States are sorted in
+     * memory in runs of at most runSize states. If there is more than one
+     * run, the sorted runs are spilled to disk and merged.
+     *
+     * @param in        File to sort, deleted afterwards
+     * @param subtract  Sorted files of states to leave out
+     * @param out       File to write the result to
+     * @param runSize   Number of states sorted in memory at once
+     * @throws IOException  If a file cannot be read or written
+     */
+    public static void sortUnique(SpillFile in, List<SpillFile> subtract, SpillFile out, int runSize) throws IOException {
+        List<Cursor> sources = new ArrayList<Cursor>();
+        List<SpillFile> runs = new ArrayList<SpillFile>();
+        try {
+            long[] run = new long[(int) Math.min(runSize, in.count)];
+            try (Cursor cursor = in.cursor()) {
+                while (cursor.hasNext()) {
+                    int length = 0;
+                    while (length < run.length && cursor.hasNext())
+                        run[length++] = cursor.next();
+                    Arrays.sort(run, 0, length);
+
+                    if (!cursor.hasNext() && runs.isEmpty()) {
+                        // Everything fits in one run, merge from memory
+                        sources.add(new ArrayCursor(run, length));
+                        break;
+                    }
+                    SpillFile spilled = new SpillFile(in.path.resolveSibling(in.path.getFileName() + ".run" + runs.size()));
+                    runs.add(spilled);
+                    try (Appender appender = spilled.appender()) {
+                        for (int i = 0; i < length; i++)
+                            appender.append(run[i]);
+                    }
+                }
+            }
+            in.delete();
+            for (SpillFile spilled : runs)
+                sources.add(spilled.cursor());
+
+            List<Cursor> excluded = new ArrayList<Cursor>();
+            for (SpillFile file : subtract) {
+                if (file != null && file.count > 0)
+                    excluded.add(file.cursor());
+            }
+            try {
+                merge(sources, excluded, out);
+            } finally {
+                for (Cursor cursor : excluded)
+                    cursor.close();
+            }
+        } finally {
+            for (Cursor cursor : sources)
+                cursor.close();
+            for (SpillFile spilled : runs)
+                spilled.delete();
+        }
+    }
+
+    /**
+     * @param sources   Sorted inputs
+     * @param excluded  Sorted states to leave out
+     * @param out       File to append the sorted distinct states to
+     * @throws IOException  If a file cannot be read or written
+     */
+    private static void merge(List<Cursor> sources, List<Cursor> excluded, SpillFile out) throws IOException {
+        PriorityQueue<Cursor> heap = new PriorityQueue<Cursor>(Math.max(1, sources.size()),
+                (a, b) -> Long.compare(a.peek(), b.peek()));
+        for (Cursor cursor : sources) {
+            if (cursor.hasNext())
+                heap.add(cursor);
+        }
+
+        try (Appender appender = out.appender()) {
+            boolean first = true;
+            long last = 0;
+            while (!heap.isEmpty()) {
+                Cursor cursor = heap.poll();
+                long value = cursor.next();
+                if (cursor.hasNext())
+                    heap.add(cursor);
+                if (!first && value == last)
+                    continue;
+                first = false;
+                last = value;
+
+                boolean found = false;
+                for (Cursor other : excluded) {
+                    while (other.hasNext() && other.peek() < value)
+                        other.next();
+                    if (other.hasNext() && other.peek() == value)
+                        found = true;
+                }
+                if (!found)
+                    appender.append(value);
+            }
+        }
+    }
+
+    /**
+     * Sequential reader of sorted or unsorted states.
+     */
+    public interface Cursor extends Closeable {
+
+        /**
+         * @return  True if a state is left
+         */
+        boolean hasNext();
+
+        /**
+         * @return  Next state, without moving past it
+         */
+        long peek();
+
+        /**
+         * @return  Next state
+         * @throws IOException  If the file cannot be read
+         */
+        long next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Adds states to the end of the file.
+     */
+    public final class Appender implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private Appender() throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        /**
+         * @param value  Packed state
+         * @throws IOException  If the file cannot be written
+         */
+        public void append(long value) throws IOException {
+            if (!buffer.hasRemaining())
+                drain();
+            buffer.putLong(value);
+            count++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            drain();
+            channel.close();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads the states of the file in order.
+     */
+    private final class FileCursor implements Cursor {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long remaining = count;
+
+        private FileCursor() throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            buffer.limit(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public long peek() {
+            try {
+                fill();
+            } catch (IOException e) {
+                throw new IllegalStateException("Couldn't read " + path, e);
+            }
+            return buffer.getLong(buffer.position());
+        }
+
+        @Override
+        public long next() throws IOException {
+            fill();
+            remaining--;
+            return buffer.getLong();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        /**
+         * Make sure the buffer holds the next state.
+         */
+        private void fill() throws IOException {
+            if (buffer.remaining() >= Long.BYTES)
+                return;
+            buffer.compact();
+            while (buffer.position() < Long.BYTES) {
+                if (channel.read(buffer) < 0)
+                    throw new IOException("Unexpected end of " + path);
+            }
+            buffer.flip();
+        }
+    }
+
+    /**
+     * Reads the states of a sorted run held in memory.
+     */
+    private static final class ArrayCursor implements Cursor {
+
+        private final long[] values;
+        private final int length;
+        private int position;
+
+        /**
+         * @param values  States
+         * @param length  Number of states used
+         */
+        ArrayCursor(long[] values, int length) {
+            this.values = values;
+            this.length = length;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < length;
+        }
+
+        @Override
+        public long peek() {
+            return values[position];
+        }
+
+        @Override
+        public long next() {
+            return values[position++];
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
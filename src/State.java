@@ -1,14 +1,33 @@
 import java.util.*;
 
 public class State {
-    
-    // 2D array representing game board where each element is a number
-    // between 0 and (boardSize*boardSize)-1 (0 is used for the blank tile)
-    private final byte[][] board;
-    private int boardSize;
 
-    // Correct position of each tile to achieve this state
-    private Position[] correctPos;
+    // Largest board packed in a single long
+    public static final int MAX_PACKED_SIZE = 4;
+
+    // Largest supported board
+    public static final int MAX_BOARD_SIZE = 8;
+
+    // Game board packed 4 bits per tile in row-major order, so the tile at
+    // (row, col) occupies bits [4*(row*boardSize+col), 4*(row*boardSize+col)+4).
+    // Each tile is a number between 0 and (boardSize*boardSize)-1 (0 is used
+    // for the blank tile), so boards up to 4x4 fit in a single long.
+    private final long packed;
+    private final int boardSize;
+
+    // Game board of boards larger than 4x4, or null. Tiles are packed
+    // tileBits(boardSize) bits each in row-major order over consecutive
+    // words, and a tile may span two words, so the 25 tiles of a 5x5 board
+    // take two longs.
+    private final long[] words;
+
+    // Index (row*boardSize+col) of the blank tile
+    private final int blank;
+
+    // Correct position of each tile to achieve this state, computed when
+    // first needed. Volatile so that a goal state can be shared by
+    // searches running on different threads.
+    private volatile Position[] correctPos;
         
     enum Operator {
         Up, Down, Left, Right;
@@ -29,8 +48,183 @@ public class State {
      * @param board  boardSize x boardSize game board array
      */
     public State(byte[][] board) {
-        this.board = board;
         this.boardSize = board.length;
+        if (this.boardSize > MAX_BOARD_SIZE)
+            throw new IllegalArgumentException("Board size " + this.boardSize + " is not supported");
+
+        long packed = 0;
+        long[] words = (this.boardSize > MAX_PACKED_SIZE) ? new long[wordCount(this.boardSize)] : null;
+        int bits = tileBits(this.boardSize);
+        int blank = -1;
+        for (int row = 0; row < this.boardSize; row++) {
+            for (int col = 0; col < this.boardSize; col++) {
+                int cell = row*this.boardSize + col;
+                if (words != null)
+                    setTile(words, bits, cell, board[row][col]);
+                else
+                    packed |= (long) (board[row][col] & 0xF) << (cell << 2);
+                if (board[row][col] == 0)
+                    blank = cell;
+            }
+        }
+        this.packed = packed;
+        this.words = words;
+        this.blank = blank;
+    }
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the board
+     * @param packed     Packed game board
+     * @param blank      Index of the blank tile
+     */
+    State(int boardSize, long packed, int blank) {
+        this.boardSize = boardSize;
+        this.packed = packed;
+        this.words = null;
+        this.blank = blank;
+    }
+
+    /**
+     * @param boardSize  Number of rows (and columns) of a board larger than
+     *                   4x4
+     * @param words      Packed game board, which is not copied
+     * @param blank      Index of the blank tile
+     */
+    State(int boardSize, long[] words, int blank) {
+        this.boardSize = boardSize;
+        this.packed = 0;
+        this.words = words;
+        this.blank = blank;
+    }
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the board
+     * @return  Goal state with tiles 1 to boardSize*boardSize-1 in row-major
+     *          order, and the blank in the last cell
+     */
+    public static State standardGoal(int boardSize) {
+        byte[][] board = new byte[boardSize][boardSize];
+        for (int cell = 0; cell < boardSize*boardSize; cell++)
+            board[cell / boardSize][cell % boardSize] = (byte) ((cell + 1) % (boardSize*boardSize));
+        return new State(board);
+    }
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the board
+     * @return  Number of bits per tile of the board
+     */
+    static int tileBits(int boardSize) {
+        if (boardSize <= MAX_PACKED_SIZE)
+            return 4;
+        return 32 - Integer.numberOfLeadingZeros(boardSize*boardSize - 1);
+    }
+
+    /**
+     * @param boardSize  Number of rows (and columns) of the board
+     * @return  Number of longs holding the packed board
+     */
+    static int wordCount(int boardSize) {
+        return (boardSize*boardSize*tileBits(boardSize) + 63) >>> 6;
+    }
+
+    /**
+     * @param words  Packed game board
+     * @param bits   Number of bits per tile
+     * @param cell   Index of the cell
+     * @return  Tile on the cell
+     */
+    private static int getTile(long[] words, int bits, int cell) {
+        int offset = cell*bits;
+        int word = offset >>> 6;
+        int shift = offset & 63;
+        long value = words[word] >>> shift;
+        if (shift + bits > 64)
+            value |= words[word + 1] << (64 - shift);
+        return (int) value & ((1 << bits) - 1);
+    }
+
+    /**
+     * @param words  Packed game board
+     * @param bits   Number of bits per tile
+     * @param cell   Index of the cell
+     * @param tile   Tile to put on the cell
+     */
+    private static void setTile(long[] words, int bits, int cell, int tile) {
+        int offset = cell*bits;
+        int word = offset >>> 6;
+        int shift = offset & 63;
+        long mask = (1L << bits) - 1;
+        words[word] = (words[word] & ~(mask << shift)) | ((long) tile << shift);
+        if (shift + bits > 64) {
+            int low = 64 - shift;
+            words[word + 1] = (words[word + 1] & ~(mask >>> low)) | ((long) tile >>> low);
+        }
+    }
+
+    /**
+     * @return  Number of rows (and columns) of the board
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * @return  True if the board is larger than 4x4, and therefore isn't
+     *          packed in a single long
+     */
+    public boolean isWide() {
+        return words != null;
+    }
+
+    /**
+     * @return  Game board packed 4 bits per tile in row-major order
+     * @throws IllegalStateException  If the board is larger than 4x4
+     */
+    public long getPacked() {
+        if (words != null)
+            throw new IllegalStateException("A " + boardSize + "x" + boardSize + " board is not packed in a single long");
+        return packed;
+    }
+
+    /**
+     * @return  Number of longs holding the packed board
+     */
+    int getWordCount() {
+        return (words != null) ? words.length : 1;
+    }
+
+    /**
+     * @param i  Index of a long of the packed board
+     * @return  The long
+     */
+    long getWord(int i) {
+        return (words != null) ? words[i] : packed;
+    }
+
+    /**
+     * @return  Index (row*boardSize+col) of the blank tile
+     */
+    public int getBlank() {
+        return blank;
+    }
+
+    /**
+     * @param row  Board row
+     * @param col  Board column
+     * @return  Tile at the given position (0 for the blank tile)
+     */
+    public byte getTile(int row, int col) {
+        return getTile(row*boardSize + col);
+    }
+
+    /**
+     * @param cell  Index (row*boardSize+col) of the cell
+     * @return  Tile on the cell (0 for the blank tile)
+     */
+    byte getTile(int cell) {
+        if (words != null)
+            return (byte) getTile(words, tileBits(boardSize), cell);
+        return (byte) ((packed >>> (cell << 2)) & 0xF);
     }
     
     /* (non-Javadoc)
@@ -40,8 +234,9 @@ public class State {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         
-        for (byte[] row : board) {
-            for (byte tile : row) {
+        for (int row = 0; row < this.boardSize; row++) {
+            for (int col = 0; col < this.boardSize; col++) {
+                byte tile = getTile(row, col);
                 if (tile == 0)
                     sb.append("[] ");
                 else
@@ -57,60 +252,47 @@ public class State {
      * @return    Resulting state, or null if operation not possible
      */
     public State move(Operator op) {
-        // Create a new empty game board
-        byte[][] newBoard = new byte[this.boardSize][this.boardSize];
-        
-        // Initialize the new board to the same as the current board
-        for (int row = 0; row < this.boardSize; row++)
-            for (int col = 0; col < this.boardSize; col++)
-                newBoard[row][col] = board[row][col];
-        
-        // Find the location of the blank tile
-        for (int row = 0; row < this.boardSize; row++) {
-            for (int col = 0; col < this.boardSize; col++) {
-                if (board[row][col] == 0) {
-                    
-                    // Try to apply the operation by moving the blank
-                    // tile in the specified direction
-                    switch (op) {
-                        case Up:
-                            if (row > 0) {
-                                newBoard[row][col] = board[row-1][col];
-                                newBoard[row-1][col] = 0;
-                            } else {
-                                return null;
-                            }
-                            break;
-                        case Down:
-                            if (row < this.boardSize -1) {
-                                newBoard[row][col] = board[row+1][col];
-                                newBoard[row+1][col] = 0;
-                            } else {
-                                return null;
-                            }
-                            break;
-                        case Left:
-                            if (col > 0) {
-                                newBoard[row][col] = board[row][col-1];
-                                newBoard[row][col-1] = 0;
-                            } else {
-                                return null;
-                            }
-                            break;
-                        case Right:
-                            if (col < this.boardSize -1) {
-                                newBoard[row][col] = board[row][col+1];
-                                newBoard[row][col+1] = 0;
-                            } else {
-                                return null;
-                            }
-                            break;
-                    }
-                }
-            }
+        int row = blank / this.boardSize;
+        int col = blank % this.boardSize;
+
+        // Find the cell the blank tile moves to
+        int target;
+        switch (op) {
+            case Up:
+                if (row == 0)
+                    return null;
+                target = blank - this.boardSize;
+                break;
+            case Down:
+                if (row == this.boardSize - 1)
+                    return null;
+                target = blank + this.boardSize;
+                break;
+            case Left:
+                if (col == 0)
+                    return null;
+                target = blank - 1;
+                break;
+            default:
+                if (col == this.boardSize - 1)
+                    return null;
+                target = blank + 1;
+                break;
+        }
+
+        if (words != null) {
+            int bits = tileBits(this.boardSize);
+            long[] newWords = words.clone();
+            setTile(newWords, bits, blank, getTile(words, bits, target));
+            setTile(newWords, bits, target, 0);
+            return new State(this.boardSize, newWords, target);
         }
-        // Create and return a new State object using the new board
-        return new State(newBoard);
+
+        // Slide the tile at the target cell into the blank. Clearing the
+        // target nibble leaves the blank (0) behind.
+        long tile = (packed >>> (target << 2)) & 0xF;
+        long newPacked = (packed & ~(0xFL << (target << 2))) | (tile << (blank << 2));
+        return new State(this.boardSize, newPacked, target);
     }
     
     /* (non-Javadoc)
@@ -125,12 +307,8 @@ public class State {
             return false;
             
         State other = (State) obj;
-        for (int i = 0; i < this.boardSize; i++)
-            for (int j = 0; j < this.boardSize; j++)
-                if (board[i][j] != other.board[i][j])
-                    return false;
-        
-        return true;
+        return packed == other.packed && boardSize == other.boardSize
+               && (words == null || Arrays.equals(words, other.words));
     }
     
     /* (non-Javadoc)
@@ -138,235 +316,173 @@ public class State {
      */
     @Override
     public int hashCode() {
-        int hash = 3;
-        for (byte[] row : board)
-            for (byte tile : row)
-                hash = 7*hash+tile;
-                
-        return hash;
+        // Spread the nibbles over the whole word before folding it to an int
+        long hash = packed * 0x9E3779B97F4A7C15L;
+        if (words != null) {
+            for (long word : words)
+                hash = (hash ^ word) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (hash ^ (hash >>> 32));
     }
     
     /**
-     * @param goal  Goal state
-     * @return Array of positions for each of the 15 tiles
+     * Every move swaps the blank with a neighbouring tile, which changes
+     * both the parity of the permutation taking this state's tiles to their
+     * cells in the goal, and the parity of the blank's distance to its goal
+     * cell. A state can therefore reach the goal exactly when the two
+     * parities are equal.
+     *
+     * @param goal  Goal state of the same size
+     * @return  True if the goal can be reached from this state
      */
-    public Position[] getCorrectPositions(State goal) {
-        if (goal.correctPos == null) {
-            goal.correctPos = new Position[this.boardSize*this.boardSize];
-            
-            // Finds the correct position of each tile using the goal state
-            for (int row = 0; row < this.boardSize; row++) {
-                for (int col = 0; col < this.boardSize; col++) {
-                    if (goal.board[row][col] != 0) {
-                        goal.correctPos[goal.board[row][col]] = new Position(row, col);
-                    }
-                }
+    public boolean isSolvable(State goal) {
+        if (words != null)
+            return isSolvableWide(goal);
+        int cells = boardSize*boardSize;
+
+        // Goal cell of each tile, packed 4 bits per tile
+        long goalCell = 0;
+        for (int cell = 0; cell < cells; cell++)
+            goalCell |= (long) cell << (((goal.packed >>> (cell << 2)) & 0xF) << 2);
+
+        // Count the cycles of the permutation from cells to goal cells
+        int visited = 0;
+        int cycles = 0;
+        for (int start = 0; start < cells; start++) {
+            if ((visited & (1 << start)) != 0)
+                continue;
+            cycles++;
+            for (int cell = start; (visited & (1 << cell)) == 0; ) {
+                visited |= 1 << cell;
+                cell = (int) (goalCell >>> (((packed >>> (cell << 2)) & 0xF) << 2)) & 0xF;
             }
         }
-        return goal.correctPos;
+        int permutationParity = (cells - cycles) & 1;
+
+        int blankDistance = Math.abs(blank / boardSize - goal.blank / boardSize)
+                          + Math.abs(blank % boardSize - goal.blank % boardSize);
+        return permutationParity == (blankDistance & 1);
     }
-    
+
     /**
-     * @param goal  Goal state to calculate manhattan distance from
-     * @return  Manhattan distance from goal state
+     * isSolvable for boards larger than 4x4.
+     *
+     * @param goal  Goal state of the same size
+     * @return  True if the goal can be reached from this state
      */
-    public short manhattanDistance(State goal)
-    {
-        short manhattan = 0;
-        
-        Position[] correctPos = getCorrectPositions(goal);
-        
-        // Compare each tile's actual row and column to the correct row
-        // and column, compute Manhattan distance, and add to sum.
-        for (int row = 0; row < this.boardSize; row++) {
-            for (int col = 0; col < this.boardSize; col++) {
-                byte tile = board[row][col];
-                
-                if (tile != 0) {
-                    manhattan += Math.abs(correctPos[tile].row-row);
-                    manhattan += Math.abs(correctPos[tile].col-col);
-                }
-            }
+    private boolean isSolvableWide(State goal) {
+        int cells = boardSize*boardSize;
+        int[] goalCell = new int[cells];
+        for (int cell = 0; cell < cells; cell++)
+            goalCell[goal.getTile(cell)] = cell;
+
+        boolean[] visited = new boolean[cells];
+        int cycles = 0;
+        for (int start = 0; start < cells; start++) {
+            if (visited[start])
+                continue;
+            cycles++;
+            for (int cell = start; !visited[cell]; cell = goalCell[getTile(cell)])
+                visited[cell] = true;
         }
-        
-        return manhattan;
+        int permutationParity = (cells - cycles) & 1;
+
+        int blankDistance = Math.abs(blank / boardSize - goal.blank / boardSize)
+                          + Math.abs(blank % boardSize - goal.blank % boardSize);
+        return permutationParity == (blankDistance & 1);
     }
-    
+
     /**
-     * Linear conflict heuristic.
-     * Returns the sum of the Manhattan distance and the additional
-     * moves required to eliminate conflicts between tiles that are in
-     * their goal row or column but in the wrong order.
-     * 
-     * @param goal  Goal state to calculate linear conflict heuristic distance from
-     * @return  Linear conflict heuristic distance from goal state
+     * @param goal  Goal state
+     * @return Array of positions for each of the 15 tiles
      */
-    public short h(State goal)
-    {
-    	if (!Config.LinearConflict) {
-    		return manhattanDistance(goal);
-    	}
-        // Required number moves to remove all linear conflicts
-        int reqMoves = 0;
-        
-        Position[] correctPos = getCorrectPositions(goal);
-        
-        // Number or horizontal and vertical conflicts a particular
-        // tile is involved in
-        int hConflicts[][] = new int[this.boardSize][this.boardSize];
-        int vConflicts[][] = new int[this.boardSize][this.boardSize];
-        
-        // conflictCount[i] is the number of tiles in a row or column
-        // that have i conflicts with other tiles in the same row/column
-        int conflictCount[];
-        
-        // For each non-blank tile on the board
-        for (int i = 0; i < this.boardSize; i++) {
-            for (int j = 0; j < this.boardSize; j++) {
-                if (board[i][j] != 0) {
-                    // If the tile is in its goal row
-                    if (correctPos[board[i][j]].row == i) {
-                        // For each of the following tiles in the row
-                        for (int k = j + 1; k < this.boardSize; k++) {
-                            // If the second tile is also in its goal row
-                            // and the two tiles are in the wrong relative order
-                            // then increase the conflict count for both tiles
-                            if (board[i][k] != 0 &&
-                                correctPos[board[i][k]].row == i &&
-                                correctPos[board[i][k]].col < correctPos[board[i][j]].col) {
-                                hConflicts[i][k]++;
-                                hConflicts[i][j]++;
-                            }
-                        }
-                    }
-                    // If the tile is in its goal column
-                    if (correctPos[board[i][j]].col == j) {
-                        // For each of the following tiles in the column
-                        for (int k = i + 1; k < this.boardSize; k++) {
-                            // If the second tile is also in its goal column
-                            // and the two tiles are in the wrong relative order
-                            // then increase the conflict count for both tiles
-                            if (board[k][j] != 0 &&
-                                correctPos[board[k][j]].col == j &&
-                                correctPos[board[k][j]].row < correctPos[board[i][j]].row) {
-                                vConflicts[k][j]++;
-                                vConflicts[i][j]++;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        
-        // For each row, add number of moves to eliminate conflicts to required moves
-        for (int i = 0; i < this.boardSize; i++) {
-            conflictCount = new int[this.boardSize];
-            for (int j = 0; j < this.boardSize; j++) {
-                conflictCount[hConflicts[i][j]]++;
-            }
-            reqMoves += movesForConflicts(conflictCount);
-        }
-        
-        // For each column, add number of moves to eliminate conflicts to required moves
-        for (int j = 0; j < this.boardSize; j++) {
-            conflictCount = new int[this.boardSize];
-            for (int i = 0; i < this.boardSize; i++) {
-                conflictCount[vConflicts[i][j]]++;
-            }
-            reqMoves += movesForConflicts(conflictCount);
+    public Position[] getCorrectPositions(State goal) {
+        Position[] correctPos = goal.correctPos;
+        if (correctPos == null) {
+            correctPos = newPositions(this.boardSize);
+            fillCorrectPositions(goal, correctPos);
+            goal.correctPos = correctPos;
         }
-        
-        // Return the sum of the Manhattan distance and the additional
-        // required moves to resolve conflicts
-        return (short) (reqMoves + manhattanDistance(goal));
+        return correctPos;
     }
-    
+
     /**
-     * @param conflictCount  conflictCount[i] is the number of tiles with i conflicts
-     * @return  Number of moves required to resolve linear conflicts
+     * @param boardSize  Number of rows (and columns) of the board
+     * @return  Array with a position for each tile, to be filled by
+     *          fillCorrectPositions
      */
-    private int movesForConflicts(int[] conflictCount)
-    {
-        if(this.boardSize == 4) {
-            // If every tile has 0 conflicts
-            // Matches 1234
-            if (conflictCount[0] == this.boardSize)
-                return 0; // No additional moves required
-
-                // If every tile has 3 conflicts
-                // Matches 4321
-            else if (conflictCount[3] == 4)
-                return 6; // 6 additional moves required
-
-                // If 2 tiles have 1 conflict each
-                // or 2 tiles have 1 conflict each and 1 tile has 2 conflicts
-                // or 3 tiles have 1 conflict each and 1 tiles has 3 conflicts
-                // Matches 1243,1324,1342,1423,2134,2314,2341,3124,4123
-            else if (conflictCount[1] == 2 && conflictCount[2] != 2 || conflictCount[1] == 3)
-                return 2; // 2 additional moves required
-
-                // Otherwise
-                // Matches 1432,2143,2413,2431,3142,3214,3241,3412,3421,4132,4213,4231,4312
-            else
-                return 4; // 4 additional moves required
-        }
+    static Position[] newPositions(int boardSize) {
+        Position[] positions = new Position[boardSize*boardSize];
+        for (int tile = 0; tile < positions.length; tile++)
+            positions[tile] = new Position(0, 0);
+        return positions;
+    }
 
-        else{ // the board size is 3
-            // Matches 123
-            if (conflictCount[0] == this.boardSize)
-                return 0; // No additional moves required
-            // Matches 321
-            else if (conflictCount[2] == 3)
-                return 4;
-            // Matches 132, 312, 213, 231
-            else
-                return 2;
+    /**
+     * Finds the correct position of each tile using a packed goal state,
+     * reusing the given Position objects.
+     *
+     * @param goal        Packed goal state
+     * @param boardSize   Number of rows (and columns) of the board
+     * @param correctPos  Array of positions for each tile to fill
+     */
+    static void fillCorrectPositions(long goal, int boardSize, Position[] correctPos) {
+        for (int cell = 0; cell < boardSize*boardSize; cell++) {
+            int tile = (int) (goal >>> (cell << 2)) & 0xF;
+            correctPos[tile].row = cell / boardSize;
+            correctPos[tile].col = cell % boardSize;
         }
     }
 
     /**
+     * Finds the correct position of each tile using a goal state of any
+     * size, reusing the given Position objects.
      *
-     * @param openHash open list which maps nodes to states
-     * @param openList open list by priority
-     * @param n the node which matches the current state
-     * @return the heuristic according to f2f with end condition. Stop when the algorithm reached a node whose f score is higher than the upper bound
+     * @param goal        Goal state
+     * @param correctPos  Array of positions for each tile to fill
      */
-    public int h_f2fEndCondition(Map<Node, State> openHash, Queue<Node> openList, Node n){
-        // returns the minimal sum of h(n. m) + g(m) for every m ∈ openList
-        int min = Integer.MAX_VALUE;
-        Queue<Node> openListCopy = new PriorityQueue<Node>(openList);
-        while(!openListCopy.isEmpty()){
-            Node e = openListCopy.poll();
-            State s = openHash.get(e);
-            short h_for_s = this.h(s);
-            int current_f_val = h_for_s + e.getDepth();
-            if (current_f_val < min){
-                min = current_f_val; // keep the upper bound
-            }
-            // reached a node whose f score is higher than the upper bound
-            int f_for_e = e.getFScore();
-            if (f_for_e > min + n.getDepth()+1)
-                return min;
+    static void fillCorrectPositions(State goal, Position[] correctPos) {
+        if (goal.words == null) {
+            fillCorrectPositions(goal.packed, goal.boardSize, correctPos);
+            return;
+        }
+        for (int cell = 0; cell < goal.boardSize*goal.boardSize; cell++) {
+            int tile = goal.getTile(cell);
+            correctPos[tile].row = cell / goal.boardSize;
+            correctPos[tile].col = cell % goal.boardSize;
         }
-       return min;
+    }
+    
+    /**
+     * @param goal  Goal state to calculate manhattan distance from
+     * @return  Manhattan distance from goal state
+     */
+    public short manhattanDistance(State goal)
+    {
+        return manhattanDistance(getCorrectPositions(goal));
     }
 
     /**
-     *
-     * @param openList open list by priority
-     * @return the heuristic according to f2f
+     * @param correctPos  Position of each tile in the goal state
+     * @return  Manhattan distance from goal state
      */
-    public int h_f2f(Map<State, Node> openList){
-        // returns the minimal sum of h(n. m) + g(m) for every m ∈ openList
-        int min = Integer.MAX_VALUE;
-        for (Map.Entry<State, Node> e: openList.entrySet()){
-            short h_for_s = this.h(e.getKey());
-            int current_val = h_for_s + e.getValue().getDepth();
-            if (current_val < min){
-                min = current_val;
+    short manhattanDistance(Position[] correctPos)
+    {
+        short manhattan = 0;
+        
+        // Compare each tile's actual row and column to the correct row
+        // and column, compute Manhattan distance, and add to sum.
+        for (int row = 0; row < this.boardSize; row++) {
+            for (int col = 0; col < this.boardSize; col++) {
+                byte tile = getTile(row, col);
+                
+                if (tile != 0) {
+                    manhattan += Math.abs(correctPos[tile].row-row);
+                    manhattan += Math.abs(correctPos[tile].col-col);
+                }
             }
         }
-        return min;
+        
+        return manhattan;
     }
-
 }
@@ -0,0 +1,45 @@
+/**
+ * Map from puzzle states to node indices, kept by a search for the nodes of
+ * one direction. Boards small enough to index by rank are stored in a
+ * RankedStateTable, and all others in a StateTable.
+ */
+public interface StateIndex {
+
+    /**
+     * @param initial  Initial state of the search
+     * @param goal     Goal state of the search
+     * @return  Empty index for the states reachable from the initial state,
+     *          ranked if the boards are small enough
+     */
+    static StateIndex of(State initial, State goal) {
+        // Ranks only tell apart the boards reachable from one another
+        if (initial.getBoardSize() <= RankedStateSet.MAX_BOARD_SIZE && initial.isSolvable(goal))
+            return new RankedStateTable(initial.getBoardSize());
+        return new StateTable();
+    }
+
+    /**
+     * @return  Number of states in the index
+     */
+    int size();
+
+    /**
+     * @param s  Puzzle state
+     * @return  Node index stored for the state, or StateTable.NOT_FOUND
+     */
+    int get(State s);
+
+    /**
+     * @param s      Puzzle state
+     * @param index  Node index to store for the state, replacing any index
+     *               already stored
+     */
+    void put(State s, int index);
+
+    /**
+     * @param s  Puzzle state
+     * @return  Node index that was stored for the state, or
+     *          StateTable.NOT_FOUND
+     */
+    int remove(State s);
+}
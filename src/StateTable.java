@@ -0,0 +1,313 @@
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from packed puzzle states to node indices.
+ * Keys are the packed boards returned by {@link State#getPacked()}, so no
+ * State, Node or boxed entry objects are kept per stored state. Collisions
+ * are resolved with linear probing and removal uses backward shifting, so
+ * the table never contains tombstones.
+ *
+ * Boards larger than 4x4 take several words. Their first word is kept in
+ * keys and the others in a parallel array, stride words per slot, which is
+ * sized by the first such board stored.
+ */
+public class StateTable implements StateIndex {
+
+    // Returned by get and remove when a state is not in the table
+    public static final int NOT_FOUND = -1;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // Grow once the table is more than 3/4 full
+    private static final int MAX_LOAD_NUM = 3;
+    private static final int MAX_LOAD_DEN = 4;
+
+    private long[] keys;
+    private long[] extra;      // Words of each key after the first
+    private int stride;        // Words per slot in extra
+    private int[] values;      // Node index, or NOT_FOUND for an empty slot
+    private int mask;
+    private int size;
+
+    public StateTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize  Number of states expected to be stored
+     */
+    public StateTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * MAX_LOAD_DEN / MAX_LOAD_NUM) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @return  Number of states in the table
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param s  Puzzle state
+     * @return  Node index stored for the state, or NOT_FOUND
+     */
+    @Override
+    public int get(State s) {
+        if (s.isWide())
+            return getWide(s);
+        return get(s.getPacked());
+    }
+
+    /**
+     * @param s  Puzzle state larger than 4x4
+     * @return  Node index stored for the state, or NOT_FOUND
+     */
+    private int getWide(State s) {
+        if (stride == 0)
+            return NOT_FOUND;
+        int slot = slot(s);
+        while (values[slot] != NOT_FOUND) {
+            if (matches(slot, s))
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @param key  Packed puzzle state
+     * @return  Node index stored for the state, or NOT_FOUND
+     */
+    public int get(long key) {
+        int slot = slot(key);
+        while (values[slot] != NOT_FOUND) {
+            if (keys[slot] == key)
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @param s      Puzzle state
+     * @param index  Node index to store for the state
+     */
+    @Override
+    public void put(State s, int index) {
+        if (s.isWide())
+            putWide(s, index);
+        else
+            put(s.getPacked(), index);
+    }
+
+    /**
+     * @param s      Puzzle state larger than 4x4
+     * @param index  Node index to store for the state, replacing any
+     *               index already stored
+     */
+    private void putWide(State s, int index) {
+        if (index < 0)
+            throw new IllegalArgumentException("Node index must not be negative: " + index);
+        if (stride != s.getWordCount() - 1) {
+            if (size > 0)
+                throw new IllegalArgumentException("States of different sizes in one table");
+            stride = s.getWordCount() - 1;
+            extra = new long[keys.length*stride];
+        }
+
+        int slot = slot(s);
+        while (values[slot] != NOT_FOUND) {
+            if (matches(slot, s)) {
+                values[slot] = index;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = s.getWord(0);
+        for (int i = 0; i < stride; i++)
+            extra[slot*stride + i] = s.getWord(i + 1);
+        values[slot] = index;
+
+        if (++size * MAX_LOAD_DEN > keys.length * MAX_LOAD_NUM)
+            rehash(keys.length << 1);
+    }
+
+    /**
+     * @param key    Packed puzzle state
+     * @param index  Node index to store for the state, replacing any
+     *               index already stored
+     */
+    public void put(long key, int index) {
+        if (index < 0)
+            throw new IllegalArgumentException("Node index must not be negative: " + index);
+
+        int slot = slot(key);
+        while (values[slot] != NOT_FOUND) {
+            if (keys[slot] == key) {
+                values[slot] = index;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = index;
+
+        if (++size * MAX_LOAD_DEN > keys.length * MAX_LOAD_NUM)
+            rehash(keys.length << 1);
+    }
+
+    /**
+     * @param s  Puzzle state
+     * @return  Node index that was stored for the state, or NOT_FOUND
+     */
+    @Override
+    public int remove(State s) {
+        if (!s.isWide())
+            return remove(s.getPacked());
+        if (stride == 0)
+            return NOT_FOUND;
+
+        int slot = slot(s);
+        while (values[slot] != NOT_FOUND) {
+            if (matches(slot, s)) {
+                int removed = values[slot];
+                shiftBack(slot);
+                size--;
+                return removed;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @param key  Packed puzzle state
+     * @return  Node index that was stored for the state, or NOT_FOUND
+     */
+    public int remove(long key) {
+        int slot = slot(key);
+        while (values[slot] != NOT_FOUND) {
+            if (keys[slot] == key) {
+                int removed = values[slot];
+                shiftBack(slot);
+                size--;
+                return removed;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Fill the hole at the given slot by moving back any later entry of
+     * the same probe run that would otherwise become unreachable.
+     *
+     * @param hole  Slot of the removed entry
+     */
+    private void shiftBack(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == NOT_FOUND)
+                break;
+            // Distance of the entry from its home slot, and of the hole
+            int home = home(slot);
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                System.arraycopy(extra, slot*stride, extra, hole*stride, stride);
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+        values[hole] = NOT_FOUND;
+    }
+
+    /**
+     * @param key  Packed puzzle state
+     * @return  Home slot of the key
+     */
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * @param s  Puzzle state larger than 4x4
+     * @return  Home slot of the state
+     */
+    private int slot(State s) {
+        long hash = s.getWord(0);
+        for (int i = 1; i < s.getWordCount(); i++)
+            hash = hash * 0x9E3779B97F4A7C15L ^ s.getWord(i);
+        return slot(hash);
+    }
+
+    /**
+     * @param slot  Occupied slot
+     * @return  Home slot of the key in the slot
+     */
+    private int home(int slot) {
+        return home(keys, extra, slot);
+    }
+
+    /**
+     * @param keys   First word of each key
+     * @param extra  Other words of each key
+     * @param slot   Occupied slot
+     * @return  Home slot of the key in the slot, in the current capacity
+     */
+    private int home(long[] keys, long[] extra, int slot) {
+        long hash = keys[slot];
+        for (int i = 0; i < stride; i++)
+            hash = hash * 0x9E3779B97F4A7C15L ^ extra[slot*stride + i];
+        return slot(hash);
+    }
+
+    /**
+     * @param slot  Occupied slot
+     * @param s     Puzzle state larger than 4x4
+     * @return  True if the slot holds the state
+     */
+    private boolean matches(int slot, State s) {
+        if (keys[slot] != s.getWord(0))
+            return false;
+        for (int i = 0; i < stride; i++) {
+            if (extra[slot*stride + i] != s.getWord(i + 1))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param capacity  New power of two capacity
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldExtra = extra;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == NOT_FOUND)
+                continue;
+            int slot = home(oldKeys, oldExtra, i);
+            while (values[slot] != NOT_FOUND)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            System.arraycopy(oldExtra, i*stride, extra, slot*stride, stride);
+            values[slot] = oldValues[i];
+        }
+    }
+
+    /**
+     * @param capacity  Power of two capacity
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        extra = new long[capacity*stride];
+        values = new int[capacity];
+        Arrays.fill(values, NOT_FOUND);
+        mask = capacity - 1;
+    }
+}